@@ -0,0 +1,38 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+    @Param({"grid", "random", "powerlaw"})
+    public String topology; // Shape of the generated graph
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int edges; // Number of edges
+
+    @Param("42")
+    public long seed; // Seed of the graph
+
+    private Runnable operation; // Builds the whole graph with one addVertex and addEdge call at a time
+
+    /**
+     * Generates the edges to replay.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        operation = Operations.of("addEdge", topology, edges, seed, 1);
+    }
+
+    /**
+     * Builds the graph once, reported per graph since the number of edges is a parameter.
+     */
+    @Benchmark
+    public void addEdges() {
+        operation.run();
+    }
+}
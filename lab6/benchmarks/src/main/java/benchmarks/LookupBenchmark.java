@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int LOOKUPS = 1024; // Lookups per run, as in Benchmark
+
+    @Param({"hasEdge", "getNeighbors"})
+    public String benchmark; // Lookup on the legacy graph API
+
+    @Param({"grid", "random", "powerlaw"})
+    public String topology; // Shape of the generated graph
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int edges; // Number of edges
+
+    @Param("42")
+    public long seed; // Seed of the graph and lookups
+
+    private Runnable operation; // A fixed batch of lookups, half of them on existing edges
+
+    /**
+     * Generates the graph and the lookups.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        operation = Operations.of(benchmark, topology, edges, seed, 1);
+    }
+
+    /**
+     * Runs the batch of lookups, reported per lookup.
+     */
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void lookup() {
+        operation.run();
+    }
+}
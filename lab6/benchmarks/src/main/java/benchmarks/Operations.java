@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+public final class Operations {
+    private static final Method OPERATION = lookup(); // Benchmark.operation of the graph code
+
+    private Operations() {
+    }
+
+    /**
+     * Builds the graph of a workload and returns one benchmark operation on it. The graph code lives in the
+     * default package, which a named package cannot import, and JMH refuses benchmarks in the default
+     * package, so the operations are fetched from Benchmark by reflection once per trial. Only the returned
+     * operation runs in the measured loop.
+     *
+     * @param benchmark the benchmark name of the Benchmark harness
+     * @param topology  the graph topology: grid, random or powerlaw
+     * @param edgeCount the number of edges
+     * @param seed      the seed of the graph, start vertices and lookups
+     * @param threads   the pool size of the parallel breadth-first search, ignored by the others
+     * @return the operation
+     */
+    public static Runnable of(String benchmark, String topology, int edgeCount, long seed, int threads) {
+        try {
+            return (Runnable) OPERATION.invoke(null, benchmark, topology, edgeCount, seed, threads);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot build the " + benchmark + " benchmark", e);
+        }
+    }
+
+    /**
+     * Finds the operation factory of the Benchmark harness.
+     *
+     * @return the factory method
+     */
+    private static Method lookup() {
+        try {
+            return Class.forName("Benchmark").getMethod("operation", String.class, String.class, int.class,
+                    long.class, int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
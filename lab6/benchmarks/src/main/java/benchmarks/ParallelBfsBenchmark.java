@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBfsBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int threads; // Size of the pool that expands each level
+
+    @Param({"grid", "random", "powerlaw"})
+    public String topology; // Shape of the generated graph
+
+    @Param({"100000", "1000000"})
+    public int edges; // Number of edges
+
+    @Param("42")
+    public long seed; // Seed of the graph and start vertices
+
+    private Runnable operation; // One parallel breadth-first search on a snapshot of the graph
+
+    /**
+     * Generates the graph and starts the pool. Each trial runs in its own fork, so the pool goes with it.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        operation = Operations.of("bfsParallel", topology, edges, seed, threads);
+    }
+
+    /**
+     * Runs one search from the next start vertex.
+     */
+    @Benchmark
+    public void search() {
+        operation.run();
+    }
+}
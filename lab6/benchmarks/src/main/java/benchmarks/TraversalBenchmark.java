@@ -0,0 +1,41 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraversalBenchmark {
+    @Param({"dijkstra", "bfsEngine", "dijkstraEngine"})
+    public String benchmark; // Legacy Dijkstra map, or the reusable search engines
+
+    @Param({"grid", "random", "powerlaw"})
+    public String topology; // Shape of the generated graph
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int edges; // Number of edges
+
+    @Param("42")
+    public long seed; // Seed of the graph and start vertices
+
+    private Runnable operation; // One full search from the next start vertex
+
+    /**
+     * Generates the graph and the start vertices.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        operation = Operations.of(benchmark, topology, edges, seed, 1);
+    }
+
+    /**
+     * Runs one search from the next start vertex.
+     */
+    @Benchmark
+    public void search() {
+        operation.run();
+    }
+}
@@ -0,0 +1,26 @@
+public class ALTSearch<V> extends AStarSearch<V> {
+    private final LandmarkIndex<V> index; // Landmark distance tables used as lower bounds
+
+    /**
+     * Constructs a new ALT search that runs on the graph of the given landmark index.
+     *
+     * @param index the landmark index
+     */
+    public ALTSearch(LandmarkIndex<V> index) {
+        super(index.getGraph(), null);
+        this.index = index;
+    }
+
+    /**
+     * Estimates the remaining distance with the landmark lower bounds.
+     *
+     * @param snapshot the graph being searched
+     * @param vertex   the vertex id
+     * @param target   the target vertex id
+     * @return a lower bound on the distance from the vertex to the target
+     */
+    @Override
+    protected double estimate(CompactGraph<V> snapshot, int vertex, int target) {
+        return index.lowerBound(vertex, target);
+    }
+}
\ No newline at end of file
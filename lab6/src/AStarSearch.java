@@ -0,0 +1,123 @@
+import java.util.BitSet;
+public class AStarSearch<V> implements Search<V>, PathSearch<V> {
+    private WeightedGraph<V> graph; // The graph to perform the search on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the search on, if constructed from one
+    private final Heuristic<V> heuristic; // Lower bound on the remaining distance to the target
+    private final SearchResult<V> result = new SearchResult<>(); // Result reused across searches
+    private final IndexedMinHeap heap = new IndexedMinHeap(0); // Heap keyed by distance plus estimate, reused across searches
+    private final BitSet settled = new BitSet(); // Vertices already recorded in the visit order
+
+    /**
+     * Constructs a new A* search with the given graph and heuristic.
+     *
+     * @param graph     the graph to perform the search on
+     * @param heuristic the admissible heuristic over the vertex data
+     */
+    public AStarSearch(WeightedGraph<V> graph, Heuristic<V> heuristic) {
+        this.graph = graph;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Constructs a new A* search that runs directly on the given compact graph.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     * @param heuristic    the admissible heuristic over the vertex data
+     */
+    public AStarSearch(CompactGraph<V> compactGraph, Heuristic<V> heuristic) {
+        this.compactGraph = compactGraph;
+        this.heuristic = heuristic;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    protected CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Estimates the remaining distance from a vertex to the target. Subclasses can override this to use
+     * bounds that are not derived from the vertex data.
+     *
+     * @param snapshot the graph being searched
+     * @param vertex   the vertex id
+     * @param target   the target vertex id
+     * @return a lower bound on the distance from the vertex to the target
+     */
+    protected double estimate(CompactGraph<V> snapshot, int vertex, int target) {
+        return heuristic.estimate(snapshot.getVertex(vertex).getData(), snapshot.getVertex(target).getData());
+    }
+
+    /**
+     * Settles the whole graph from the given vertex. Without a target the heuristic plays no part,
+     * so this is equivalent to Dijkstra's algorithm.
+     *
+     * @param start the start vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> search(Vertex<V> start) {
+        CompactGraph<V> snapshot = snapshot(start.getId());
+        run(snapshot, snapshot.indexOf(start), -1);
+        return result;
+    }
+
+    /**
+     * Finds the shortest path between two vertices, expanding vertices in order of their distance from
+     * the source plus the estimated distance to the target.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> shortestPath(Vertex<V> source, Vertex<V> target) {
+        CompactGraph<V> snapshot = snapshot(Math.max(source.getId(), target.getId()));
+        run(snapshot, snapshot.indexOf(source), snapshot.indexOf(target));
+        return result;
+    }
+
+    /**
+     * Runs A* into the reused result.
+     *
+     * @param snapshot the graph to search
+     * @param source   the start vertex id
+     * @param target   the target vertex id, or -1 to settle the whole graph
+     */
+    private void run(CompactGraph<V> snapshot, int source, int target) {
+        result.reset(snapshot, source);
+        heap.clear();
+        heap.ensureCapacity(snapshot.vertexCount());
+        settled.clear();
+
+        result.reach(source, 0.0, -1); // Set the distance of the start vertex to 0
+        heap.insert(source, target == -1 ? 0.0 : estimate(snapshot, source, target));
+
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll(); // Retrieve the vertex with the smallest distance plus estimate
+            double distance = result.distance(vertex);
+            if (!settled.get(vertex)) {
+                settled.set(vertex);
+                result.visit(vertex); // Record the first time the vertex is settled
+            }
+            if (vertex == target)
+                return; // The distance to the target is final
+
+            for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+                int neighbor = snapshot.target(edge);
+                double newDistance = distance + snapshot.weight(edge); // Calculate the new distance
+                if (newDistance < result.distance(neighbor)) {
+                    result.reach(neighbor, newDistance, vertex); // Update the distance and predecessor of the neighbor
+                    // A settled vertex is reopened here when the heuristic is admissible but not consistent
+                    double key = target == -1 ? newDistance : newDistance + estimate(snapshot, neighbor, target);
+                    heap.insertOrDecrease(neighbor, key);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
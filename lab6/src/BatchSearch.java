@@ -0,0 +1,227 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+public class BatchSearch<V> {
+    /**
+     * Receives the result of one search of a batch.
+     */
+    public interface ResultConsumer<V> {
+        /**
+         * Handles the result of the search from one source.
+         *
+         * @param index  the position of the source in the list of sources
+         * @param result the result of the search, only valid during this call
+         */
+        void accept(int index, SearchResult<V> result);
+    }
+
+    private WeightedGraph<V> graph; // The graph to perform the searches on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the searches on, if constructed from one
+    private final ForkJoinPool pool; // Pool that runs the searches
+    private final ThreadLocal<Workspace<V>> workspaces = new ThreadLocal<>(); // Search state reused by each thread
+
+    /**
+     * Constructs a new batch search over the given graph, running on the common pool.
+     *
+     * @param graph the graph to perform the searches on
+     */
+    public BatchSearch(WeightedGraph<V> graph) {
+        this.graph = graph;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Constructs a new batch search that runs directly on the given compact graph, using the given pool.
+     *
+     * @param compactGraph the compact graph to perform the searches on
+     * @param pool         the pool that runs the searches
+     */
+    public BatchSearch(CompactGraph<V> compactGraph, ForkJoinPool pool) {
+        this.compactGraph = compactGraph;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Returns the highest id of the given vertices.
+     *
+     * @param vertices the vertices
+     * @return the highest id, or -1 if the list is empty
+     */
+    private static int maxId(List<? extends Vertex<?>> vertices) {
+        int max = -1;
+        for (Vertex<?> vertex : vertices) {
+            max = Math.max(max, vertex.getId());
+        }
+        return max;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from every source and collects the distances into a dense matrix.
+     *
+     * @param sources the source vertices
+     * @return the matrix whose row i holds the distances from sources.get(i) by vertex id
+     */
+    public double[][] distances(List<Vertex<V>> sources) {
+        double[][] matrix = new double[sources.size()][];
+        forEach(sources, (index, result) -> {
+            double[] row = new double[result.getGraph().vertexCount()];
+            for (int vertex = 0; vertex < row.length; vertex++) {
+                row[vertex] = result.distance(vertex);
+            }
+            matrix[index] = row;
+        });
+        return matrix;
+    }
+
+    /**
+     * Computes the distance matrix between origins and destinations. Each origin runs a pruned Dijkstra
+     * search that stops once every destination is settled, and the origins run in parallel.
+     *
+     * @param origins      the origin vertices
+     * @param destinations the destination vertices
+     * @return the matrix whose entry [i][j] is the distance from origins.get(i) to destinations.get(j)
+     */
+    public double[][] distances(List<Vertex<V>> origins, List<Vertex<V>> destinations) {
+        CompactGraph<V> snapshot = snapshot(Math.max(maxId(origins), maxId(destinations))); // Pin one version for the whole matrix
+        int[] columns = new int[destinations.size()]; // Vertex id of each destination
+        boolean[] isTarget = new boolean[snapshot.vertexCount()];
+        int targetCount = 0;
+        for (int j = 0; j < columns.length; j++) {
+            columns[j] = snapshot.indexOf(destinations.get(j));
+            if (!isTarget[columns[j]]) { // Destinations listed twice only count once
+                isTarget[columns[j]] = true;
+                targetCount++;
+            }
+        }
+
+        double[][] matrix = new double[origins.size()][columns.length];
+        run(snapshot, origins, isTarget, targetCount, (index, result) -> {
+            double[] row = matrix[index];
+            for (int j = 0; j < columns.length; j++) {
+                row[j] = result.distance(columns[j]);
+            }
+        });
+        return matrix;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from every source concurrently and hands each result to the consumer.
+     * All searches share one snapshot of the graph. Each thread keeps its own heap and result arrays
+     * across sources and batches, so a search only pays for the vertices it touches.
+     * The result is only valid during the call to the consumer, which may run on any pool thread.
+     *
+     * @param sources  the source vertices
+     * @param consumer receives the position of the source in the list and the result of its search
+     */
+    public void forEach(List<Vertex<V>> sources, ResultConsumer<V> consumer) {
+        CompactGraph<V> snapshot = snapshot(maxId(sources)); // Pin one version of the graph for the whole batch
+        run(snapshot, sources, null, 0, consumer);
+    }
+
+    /**
+     * Runs the searches of a batch on the pool.
+     *
+     * @param snapshot    the graph to search
+     * @param sources     the source vertices
+     * @param isTarget    marks the vertices each search has to settle before stopping, or null to settle all
+     * @param targetCount the number of marked vertices
+     * @param consumer    receives the position of the source in the list and the result of its search
+     */
+    private void run(CompactGraph<V> snapshot, List<Vertex<V>> sources, boolean[] isTarget, int targetCount,
+                     ResultConsumer<V> consumer) {
+        for (Vertex<V> source : sources) {
+            snapshot.indexOf(source); // Reject foreign vertices before any search starts
+        }
+        pool.invoke(new BatchTask(snapshot, sources, isTarget, targetCount, consumer, 0, sources.size()));
+    }
+
+    /**
+     * Returns the calling thread's search for the given snapshot, creating it on first use.
+     *
+     * @param snapshot the graph to search
+     * @return the search of the calling thread
+     */
+    private DijkstraSearch<V> workspace(CompactGraph<V> snapshot) {
+        Workspace<V> workspace = workspaces.get();
+        if (workspace == null) {
+            workspace = new Workspace<>();
+            workspaces.set(workspace);
+        }
+        if (workspace.search == null) {
+            workspace.search = new DijkstraSearch<>(snapshot);
+        } else if (workspace.graph != snapshot) { // The graph changed since this thread last searched
+            workspace.search.rebind(snapshot); // Keep the heap and result arrays, grown only for more vertices
+        }
+        workspace.graph = snapshot;
+        return workspace.search;
+    }
+
+    /**
+     * Search state owned by one thread.
+     */
+    private static class Workspace<V> {
+        private CompactGraph<V> graph; // Snapshot the search runs on
+        private DijkstraSearch<V> search; // Search with its reusable heap and result
+    }
+
+    /**
+     * Searches from a range of the sources, splitting the range until it holds a single source.
+     */
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final CompactGraph<V> snapshot; // Snapshot shared by the batch
+        private final List<Vertex<V>> sources; // Sources of the batch
+        private final boolean[] isTarget; // Vertices each search has to settle, or null to settle all
+        private final int targetCount; // Number of marked vertices
+        private final ResultConsumer<V> consumer; // Receives each result
+        private final int from; // First source of the range
+        private final int to; // End of the range, exclusive
+
+        /**
+         * Constructs a new task for the given range of sources.
+         *
+         * @param snapshot    the snapshot shared by the batch
+         * @param sources     the sources of the batch
+         * @param isTarget    the vertices each search has to settle, or null to settle all
+         * @param targetCount the number of marked vertices
+         * @param consumer    receives each result
+         * @param from        the first source of the range
+         * @param to          the end of the range, exclusive
+         */
+        BatchTask(CompactGraph<V> snapshot, List<Vertex<V>> sources, boolean[] isTarget, int targetCount,
+                  ResultConsumer<V> consumer, int from, int to) {
+            this.snapshot = snapshot;
+            this.sources = sources;
+            this.isTarget = isTarget;
+            this.targetCount = targetCount;
+            this.consumer = consumer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(snapshot, sources, isTarget, targetCount, consumer, from, middle),
+                        new BatchTask(snapshot, sources, isTarget, targetCount, consumer, middle, to));
+            } else if (to > from) {
+                DijkstraSearch<V> search = workspace(snapshot);
+                Vertex<V> source = sources.get(from);
+                consumer.accept(from, isTarget == null ? search.search(source)
+                        : search.searchUntilSettled(source, isTarget, targetCount));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,424 @@
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+public class Benchmark {
+    private static final String[] BENCHMARKS = {"dijkstra", "addEdge", "hasEdge", "getNeighbors",
+            "bfsEngine", "dijkstraEngine", "bfsParallel"}; // Every benchmark, in the order they are run
+    private static final String[] TOPOLOGIES = {"grid", "random", "powerlaw"}; // Every graph shape
+    private static final int LOOKUPS = 1024; // Lookups per invocation of the hasEdge and getNeighbors benchmarks
+    private static final int STARTS = 64; // Start vertices the traversal benchmarks cycle through
+    private static final String ROW_FORMAT = "%-16s %-9s %10s %-6s %16s %14s  %s%n"; // Columns of the report
+
+    private static volatile long sink; // Consumes results so that the JIT cannot drop the work being measured
+
+    /**
+     * Runs the benchmarks and prints a report. Every combination of benchmark, topology and size runs in
+     * its own JVM by default, so that code compiled for one does not bias the next. This harness needs
+     * nothing but the JDK; the benchmarks module runs the same operations under JMH.
+     * Options, each followed by a comma separated list or a number:
+     * --benchmarks (default all), --topologies grid,random,powerlaw, --sizes edge counts (default
+     * 1000,10000,100000,1000000), --warmups 3, --iterations 5, --millis 1000 per iteration,
+     * --forks 1 (0 runs in this JVM), --seed 42, --threads pool sizes for bfsParallel (default the powers
+     * of two up to the number of processors). bfsParallel reports one row per pool size, named
+     * bfsParallel/threads, so a single run gives the scaling of the parallel levels.
+     *
+     * @param args the options
+     * @throws Exception if a forked JVM cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--"))
+                throw new IllegalArgumentException("Expected an option but found " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String[] benchmarks = options.getOrDefault("benchmarks", String.join(",", BENCHMARKS)).split(",");
+        String[] topologies = options.getOrDefault("topologies", String.join(",", TOPOLOGIES)).split(",");
+        String[] sizes = options.getOrDefault("sizes", "1000,10000,100000,1000000").split(",");
+        int forks = Integer.parseInt(options.getOrDefault("forks", "1"));
+
+        if (!options.containsKey("child"))
+            System.out.printf(ROW_FORMAT, "Benchmark", "Topology", "Edges", "Mode", "Score", "Error (sd)", "Units");
+        for (String topology : topologies) {
+            for (String size : sizes) {
+                if (forks > 0) {
+                    for (String benchmark : benchmarks) {
+                        for (int fork = 0; fork < forks; fork++) {
+                            fork(options, benchmark, topology, size);
+                        }
+                    }
+                } else {
+                    run(options, benchmarks, topology, Integer.parseInt(size));
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs one benchmark in a new JVM with the same class path and JVM options as this one.
+     *
+     * @param options   the options of this run
+     * @param benchmark the benchmark to run
+     * @param topology  the graph topology
+     * @param size      the number of edges
+     * @throws Exception if the JVM cannot be started or fails
+     */
+    private static void fork(Map<String, String> options, String benchmark, String topology, String size)
+            throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Benchmark.class.getName());
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            command.add("--" + option.getKey());
+            command.add(option.getValue());
+        }
+        Collections.addAll(command, "--benchmarks", benchmark, "--topologies", topology, "--sizes", size,
+                "--forks", "0", "--child", "true");
+        int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+        if (status != 0)
+            throw new IllegalStateException("Benchmark " + benchmark + " on " + topology + " " + size
+                    + " failed with exit status " + status);
+    }
+
+    /**
+     * Builds one graph and runs the given benchmarks on it in this JVM.
+     *
+     * @param options    the options of this run
+     * @param benchmarks the benchmarks to run
+     * @param topology   the graph topology
+     * @param edgeCount  the number of edges
+     */
+    private static void run(Map<String, String> options, String[] benchmarks, String topology, int edgeCount) {
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Workload workload = new Workload(topology, edgeCount, seed);
+        WeightedGraph<Integer> graph = workload.build();
+        for (String benchmark : benchmarks) {
+            if (benchmark.equals("bfsParallel")) {
+                sweepParallelBfs(options, topology, edgeCount, workload, graph, seed);
+                continue; // One row per pool size, measured by the sweep
+            }
+            measure(options, benchmark, topology, edgeCount,
+                    operation(benchmark, workload, graph, new Random(seed), null),
+                    operationsPerInvocation(benchmark, workload));
+        }
+    }
+
+    /**
+     * Builds the graph of a workload and returns one benchmark operation on it. This is the entry point of
+     * the JMH benchmarks in the benchmarks module, which live in a named package and so reach the classes
+     * here by reflection. The parallel breadth-first search gets a pool of its own, whose daemon workers
+     * live as long as the JVM.
+     *
+     * @param benchmark the benchmark name, any of the benchmarks of this harness
+     * @param topology  the graph topology
+     * @param edgeCount the number of edges
+     * @param seed      the seed of the graph, start vertices and lookups
+     * @param threads   the pool size of the parallel breadth-first search, ignored by the others
+     * @return the operation, counting as operationsPerInvocation operations per run
+     */
+    public static Runnable operation(String benchmark, String topology, int edgeCount, long seed, int threads) {
+        Workload workload = new Workload(topology, edgeCount, seed);
+        ForkJoinPool pool = benchmark.equals("bfsParallel") ? new ForkJoinPool(threads) : null;
+        return operation(benchmark, workload, workload.build(), new Random(seed), pool);
+    }
+
+    /**
+     * Returns one benchmark operation on a graph. The start vertices and lookups are drawn up front, so the
+     * operation itself only runs the graph code.
+     *
+     * @param benchmark the benchmark name
+     * @param workload  the edges the graph was built from
+     * @param graph     the graph
+     * @param random    draws the start vertices and lookups
+     * @param pool      the pool of the parallel breadth-first search, or null for the other benchmarks
+     * @return the operation
+     */
+    private static Runnable operation(String benchmark, Workload workload, WeightedGraph<Integer> graph,
+                                      Random random, ForkJoinPool pool) {
+        int[] starts = new int[STARTS];
+        int[] lookupSources = new int[LOOKUPS];
+        int[] lookupTargets = new int[LOOKUPS];
+        for (int i = 0; i < STARTS; i++) {
+            starts[i] = random.nextInt(workload.vertexCount);
+        }
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (i % 2 == 0 && workload.edgeCount > 0) { // Half of the lookups hit an existing edge
+                int edge = random.nextInt(workload.edgeCount);
+                lookupSources[i] = workload.sources[edge];
+                lookupTargets[i] = workload.targets[edge];
+            } else {
+                lookupSources[i] = random.nextInt(workload.vertexCount);
+                lookupTargets[i] = random.nextInt(workload.vertexCount);
+            }
+        }
+        int[] next = {0}; // Position in the start vertices
+
+        switch (benchmark) {
+            case "dijkstra":
+                return () -> sink += graph.Dijkstra(graph.getVertex(starts[next[0]++ & (STARTS - 1)])).size();
+            case "addEdge":
+                return () -> sink += workload.build().vertexCount();
+            case "hasEdge":
+                return () -> {
+                    for (int i = 0; i < LOOKUPS; i++) {
+                        if (graph.hasEdge(graph.getVertex(lookupSources[i]), graph.getVertex(lookupTargets[i])))
+                            sink++;
+                    }
+                };
+            case "getNeighbors":
+                return () -> {
+                    for (int i = 0; i < LOOKUPS; i++) {
+                        sink += graph.getNeighbors(graph.getVertex(lookupSources[i])).size();
+                    }
+                };
+            case "bfsEngine": {
+                BreadthFirstSearch<Integer> search = new BreadthFirstSearch<>(graph);
+                return () -> sink += search.search(graph.getVertex(starts[next[0]++ & (STARTS - 1)])).visitCount();
+            }
+            case "dijkstraEngine": {
+                DijkstraSearch<Integer> search = new DijkstraSearch<>(graph);
+                return () -> sink += search.search(graph.getVertex(starts[next[0]++ & (STARTS - 1)])).visitCount();
+            }
+            case "bfsParallel": {
+                CompactGraph<Integer> snapshot = graph.freeze();
+                BreadthFirstSearch<Integer> search = new BreadthFirstSearch<>(snapshot,
+                        BreadthFirstSearch.Mode.PARALLEL, pool);
+                return () -> sink += search.search(snapshot.getVertex(starts[next[0]++ & (STARTS - 1)])).visitCount();
+            }
+            default:
+                throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+        }
+    }
+
+    /**
+     * Returns the number of operations one run of a benchmark operation counts as.
+     *
+     * @param benchmark the benchmark name
+     * @param workload  the edges the graph was built from
+     * @return the number of operations per run
+     */
+    private static int operationsPerInvocation(String benchmark, Workload workload) {
+        switch (benchmark) {
+            case "addEdge":
+                return workload.edgeCount;
+            case "hasEdge":
+            case "getNeighbors":
+                return LOOKUPS;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Measures the parallel breadth-first search on a snapshot of the graph once per pool size.
+     *
+     * @param options   the options of this run
+     * @param topology  the graph topology
+     * @param edgeCount the number of edges
+     * @param workload  the edges the graph was built from
+     * @param graph     the graph to search
+     * @param seed      the seed of the start vertices
+     */
+    private static void sweepParallelBfs(Map<String, String> options, String topology, int edgeCount,
+                                         Workload workload, WeightedGraph<Integer> graph, long seed) {
+        String defaultThreads = "1";
+        for (int threads = 2; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            defaultThreads += "," + threads;
+        }
+        for (String threads : options.getOrDefault("threads", defaultThreads).split(",")) {
+            ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(threads));
+            try {
+                measure(options, "bfsParallel/" + threads, topology, edgeCount,
+                        operation("bfsParallel", workload, graph, new Random(seed), pool), 1);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs warmup and measured iterations of an operation and prints its throughput, average time,
+     * allocation per operation, allocation rate and garbage collections.
+     *
+     * @param options                 the options of this run
+     * @param benchmark               the benchmark name
+     * @param topology                the graph topology
+     * @param edgeCount               the number of edges
+     * @param operation               the operation to measure
+     * @param operationsPerInvocation the number of operations one run of the operation counts as
+     */
+    private static void measure(Map<String, String> options, String benchmark, String topology, int edgeCount,
+                                Runnable operation, int operationsPerInvocation) {
+        int warmups = Integer.parseInt(options.getOrDefault("warmups", "3"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        long iterationNanos = Long.parseLong(options.getOrDefault("millis", "1000")) * 1_000_000L;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        double[] throughput = new double[iterations]; // Operations per second
+        double[] averageTime = new double[iterations]; // Microseconds per operation
+        double[] allocation = new double[iterations]; // Bytes allocated per operation
+        double[] allocationRate = new double[iterations]; // Megabytes allocated per second
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int i = -warmups; i < iterations; i++) {
+            long collections = gcCount();
+            long collectionMillis = gcMillis();
+            long allocated = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long invocations = 0;
+            long elapsed;
+            do {
+                operation.run();
+                invocations++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            if (i < 0)
+                continue; // Warmup iteration
+            double operations = (double) invocations * operationsPerInvocation;
+            throughput[i] = operations * 1e9 / elapsed;
+            averageTime[i] = elapsed / 1e3 / operations;
+            allocation[i] = allocated / operations;
+            allocationRate[i] = allocated * 1e3 / elapsed; // Bytes per nanosecond times 1000 is MB/s
+            gcCount += gcCount() - collections;
+            gcMillis += gcMillis() - collectionMillis;
+        }
+
+        String edges = Integer.toString(edgeCount);
+        report(benchmark, topology, edges, "thrpt", throughput, "ops/s");
+        report(benchmark, topology, edges, "avgt", averageTime, "us/op");
+        report(benchmark, topology, edges, "alloc", allocation, "B/op");
+        report(benchmark, topology, edges, "alloc", allocationRate, "MB/s");
+        System.out.printf(ROW_FORMAT, benchmark, topology, edges, "gc", gcCount, "", "collections, " + gcMillis + " ms");
+    }
+
+    /**
+     * Prints the mean and standard deviation of the measured iterations as one row of the report.
+     *
+     * @param benchmark the benchmark name
+     * @param topology  the graph topology
+     * @param edges     the number of edges
+     * @param mode      the measurement mode
+     * @param values    the value of each iteration
+     * @param units     the units of the values
+     */
+    private static void report(String benchmark, String topology, String edges, String mode, double[] values,
+                               String units) {
+        double mean = 0;
+        for (double value : values) {
+            mean += value / values.length;
+        }
+        double variance = 0;
+        for (double value : values) {
+            variance += (value - mean) * (value - mean) / Math.max(1, values.length - 1);
+        }
+        System.out.printf(ROW_FORMAT, benchmark, topology, edges, mode, String.format("%.3f", mean),
+                String.format("+- %.3f", Math.sqrt(variance)), units);
+    }
+
+    /**
+     * Returns the number of garbage collections so far, over all collectors.
+     *
+     * @return the collection count
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time spent in garbage collection so far, over all collectors.
+     *
+     * @return the collection time in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * The edges of a generated graph, kept as arrays so that the ingest benchmark can replay them.
+     */
+    private static class Workload {
+        private final int vertexCount; // Number of vertices
+        private final int edgeCount; // Number of edges
+        private final int[] sources; // Source vertex of each edge
+        private final int[] targets; // Target vertex of each edge
+        private final double[] weights; // Weight of each edge
+
+        /**
+         * Generates a graph with about the given number of edges with GraphGenerator and keeps its edges.
+         * A grid is a square road-like grid, random is an Erdos-Renyi graph and powerlaw a Barabasi-Albert
+         * graph where each new vertex joins four others. The last two have average degree 8.
+         *
+         * @param topology  the graph topology
+         * @param edgeCount the number of edges
+         * @param seed      the seed of the generator
+         */
+        Workload(String topology, int edgeCount, long seed) {
+            GraphGenerator generator = new GraphGenerator(seed);
+            CompactGraph<?> generated;
+            switch (topology) {
+                case "grid": {
+                    int side = Math.max(2, (int) Math.ceil(Math.sqrt(edgeCount / 2.0)) + 1); // 2 side (side - 1) edges
+                    generated = generator.grid(side, side, 0.0);
+                    break;
+                }
+                case "random":
+                    generated = generator.erdosRenyi(Math.max(2, edgeCount / 4), edgeCount);
+                    break;
+                case "powerlaw":
+                    generated = generator.barabasiAlbert(Math.max(5, edgeCount / 4), 4);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown topology " + topology);
+            }
+            this.vertexCount = generated.vertexCount();
+            this.sources = new int[generated.edgeCount() / 2 + vertexCount]; // Room for loops, stored once
+            this.targets = new int[sources.length];
+            this.weights = new double[sources.length];
+            int count = 0;
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                for (int edge = generated.offset(vertex); edge < generated.offset(vertex + 1); edge++) {
+                    if (generated.target(edge) < vertex)
+                        continue; // Kept from the other end, since addEdge stores both directions
+                    sources[count] = vertex;
+                    targets[count] = generated.target(edge);
+                    weights[count] = generated.weight(edge);
+                    count++;
+                }
+            }
+            this.edgeCount = count;
+        }
+
+        /**
+         * Builds a weighted graph from the edges, one addVertex and addEdge call at a time.
+         *
+         * @return the weighted graph
+         */
+        WeightedGraph<Integer> build() {
+            WeightedGraph<Integer> graph = new WeightedGraph<>();
+            List<Vertex<Integer>> vertices = new ArrayList<>(vertexCount);
+            for (int i = 0; i < vertexCount; i++) {
+                Vertex<Integer> vertex = new Vertex<>(i);
+                vertices.add(vertex);
+                graph.addVertex(vertex);
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                graph.addEdge(vertices.get(sources[i]), vertices.get(targets[i]), weights[i]);
+            }
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+public class BidirectionalDijkstraSearch<V> implements PathSearch<V> {
+    private WeightedGraph<V> graph; // The graph to perform the search on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the search on, if constructed from one
+    private final SearchResult<V> forward = new SearchResult<>(); // Forward search from the source, returned to callers
+    private final SearchResult<V> backward = new SearchResult<>(); // Backward search from the target
+    private final IndexedMinHeap forwardHeap = new IndexedMinHeap(0); // Heap of the forward search
+    private final IndexedMinHeap backwardHeap = new IndexedMinHeap(0); // Heap of the backward search
+    private double bestDistance; // Length of the shortest path found so far
+    private int meetingVertex; // Vertex where the shortest path found so far joins both searches, or -1
+
+    /**
+     * Constructs a new bidirectional Dijkstra search with the given graph.
+     * The backward search walks the same edges as the forward search, which is correct because
+     * addEdge always inserts both directions.
+     *
+     * @param graph the graph to perform the search on
+     */
+    public BidirectionalDijkstraSearch(WeightedGraph<V> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Constructs a new bidirectional Dijkstra search that runs directly on the given compact graph.
+     * Every edge of the compact graph must exist in both directions with the same weight.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     */
+    public BidirectionalDijkstraSearch(CompactGraph<V> compactGraph) {
+        this.compactGraph = compactGraph;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Finds the shortest path by alternating a forward search from the source and a backward search from
+     * the target. It stops once the smallest keys of both heaps add up to at least the best path found.
+     * The visit order of the result holds the vertices settled by the forward search.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> shortestPath(Vertex<V> source, Vertex<V> target) {
+        CompactGraph<V> snapshot = snapshot(Math.max(source.getId(), target.getId()));
+        int from = snapshot.indexOf(source);
+        int to = snapshot.indexOf(target);
+
+        forward.reset(snapshot, from);
+        backward.reset(snapshot, to);
+        forwardHeap.clear();
+        backwardHeap.clear();
+        forwardHeap.ensureCapacity(snapshot.vertexCount());
+        backwardHeap.ensureCapacity(snapshot.vertexCount());
+
+        forward.reach(from, 0.0, -1);
+        backward.reach(to, 0.0, -1);
+        forwardHeap.insert(from, 0.0);
+        backwardHeap.insert(to, 0.0);
+        bestDistance = from == to ? 0.0 : Double.POSITIVE_INFINITY;
+        meetingVertex = from == to ? from : -1;
+
+        while (!forwardHeap.isEmpty() && !backwardHeap.isEmpty()) {
+            double forwardMin = forwardHeap.getKey(forwardHeap.peek());
+            double backwardMin = backwardHeap.getKey(backwardHeap.peek());
+            if (forwardMin + backwardMin >= bestDistance)
+                break; // No path through an unsettled vertex can be shorter
+
+            if (forwardMin <= backwardMin) // Expand the side with the smaller radius
+                step(snapshot, forwardHeap, forward, backward);
+            else
+                step(snapshot, backwardHeap, backward, forward);
+        }
+
+        if (meetingVertex != -1) {
+            // Append the backward half of the path to the forward predecessors
+            for (int vertex = meetingVertex; vertex != to; ) {
+                int next = backward.predecessor(vertex);
+                forward.reach(next, bestDistance - backward.distance(next), vertex);
+                vertex = next;
+            }
+        }
+        return forward;
+    }
+
+    /**
+     * Settles the closest vertex of one search and relaxes its edges, updating the best path when an edge
+     * reaches a vertex already seen by the other search.
+     *
+     * @param snapshot the graph to search
+     * @param heap     the heap of the expanding search
+     * @param own      the state of the expanding search
+     * @param other    the state of the opposite search
+     */
+    private void step(CompactGraph<V> snapshot, IndexedMinHeap heap, SearchResult<V> own, SearchResult<V> other) {
+        int vertex = heap.poll(); // Retrieve and remove the vertex with the minimum distance
+        double distance = own.distance(vertex);
+        if (own == forward)
+            forward.visit(vertex); // Record the forward settle order
+
+        for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+            int neighbor = snapshot.target(edge);
+            double newDistance = distance + snapshot.weight(edge); // Calculate the new distance
+            if (newDistance < own.distance(neighbor)) {
+                own.reach(neighbor, newDistance, vertex); // Update the distance and predecessor of the neighbor
+                heap.insertOrDecrease(neighbor, newDistance);
+            }
+
+            double throughEdge = newDistance + other.distance(neighbor); // Path joining both searches over this edge
+            if (throughEdge < bestDistance) {
+                bestDistance = throughEdge;
+                meetingVertex = neighbor; // A shorter path can only come from an improved distance to the neighbor
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,51 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
 public class BreadthFirstSearch<V> implements Search<V> {
+    /**
+     * How the search expands each level.
+     */
+    public enum Mode {
+        /** Every frontier vertex scans its edges for unvisited neighbors. */
+        TOP_DOWN,
+        /**
+         * Switches to bottom-up levels, where every unvisited vertex looks for a parent in the frontier bitmap,
+         * while the frontier has many edges compared to the unvisited part of the graph.
+         */
+        DIRECTION_OPTIMIZING,
+        /**
+         * Splits each level across a ForkJoinPool. Threads claim vertices with compare-and-set on the words of
+         * a shared bitmap and collect the next level in per-chunk buffers that are concatenated afterwards.
+         */
+        PARALLEL
+    }
+
+    private static final int ALPHA = 14; // Go bottom-up once the frontier has more than 1/ALPHA of the unexplored edges
+    private static final int BETA = 24; // Go back top-down once the frontier has fewer than 1/BETA of the vertices
+    private static final int MIN_CHUNK = 256; // Fewest level vertices per parallel chunk
+    private static final int INLINE_LEVEL = 1024; // Levels up to this size are expanded on the calling thread
+
     private WeightedGraph<V> graph; // The graph to perform the search on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the search on, if constructed from one
+    private final Mode mode; // How the search expands each level
+    private final SearchResult<V> result = new SearchResult<>(); // Result reused across searches
+    private long[] visited = new long[0]; // Bitmap of visited vertices for bottom-up levels
+    private long[] frontier = new long[0]; // Bitmap of the current level for bottom-up levels
+    private final ForkJoinPool pool; // Pool that expands the levels in parallel mode
+    private AtomicLongArray claimed = new AtomicLongArray(0); // Bitmap of visited vertices for parallel levels
+    private int[][] chunkBuffers = new int[0][]; // Next level vertices found by each chunk of the current level
+    private int[] chunkSizes = new int[0]; // Number of vertices in each chunk buffer
+    private int[] chunkPositions = new int[0]; // Position of each chunk buffer in the visit order
+    private CompactGraph<V> current; // Graph of the running parallel search
+    private int levelStart; // Position of the current level in the visit order, for parallel levels
+    private int levelEnd; // End of the current level in the visit order, for parallel levels
+    private int chunkLength; // Number of current level vertices per chunk
+    private double depth; // Depth of the next level, for parallel levels
+    private SearchMetrics metrics; // Records the cost of each search, or null
+    private long edgesScanned; // Edges scanned by the running search
+    private boolean countLevels; // True if parallel levels sum the degrees of their vertices for the scan count
+    private int peakQueue; // Largest queue or level size of the running search
 
     /**
      * Constructs a new breadth-first search algorithm with the given graph.
@@ -7,11 +53,389 @@ public class BreadthFirstSearch<V> implements Search<V> {
      * @param graph the graph to perform the search on
      */
     public BreadthFirstSearch(WeightedGraph<V> graph) {
+        this(graph, Mode.TOP_DOWN);
+    }
+
+    /**
+     * Constructs a new breadth-first search algorithm with the given graph and expansion mode.
+     *
+     * @param graph the graph to perform the search on
+     * @param mode  how the search expands each level
+     */
+    public BreadthFirstSearch(WeightedGraph<V> graph, Mode mode) {
         this.graph = graph;
+        this.mode = mode;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Constructs a new breadth-first search algorithm that runs directly on the given compact graph.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     */
+    public BreadthFirstSearch(CompactGraph<V> compactGraph) {
+        this(compactGraph, Mode.TOP_DOWN);
+    }
+
+    /**
+     * Constructs a new breadth-first search algorithm that runs directly on the given compact graph
+     * with the given expansion mode.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     * @param mode         how the search expands each level
+     */
+    public BreadthFirstSearch(CompactGraph<V> compactGraph, Mode mode) {
+        this(compactGraph, mode, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new breadth-first search algorithm that runs directly on the given compact graph
+     * with the given expansion mode, using the given pool for parallel levels.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     * @param mode         how the search expands each level
+     * @param pool         the pool that expands the levels in parallel mode
+     */
+    public BreadthFirstSearch(CompactGraph<V> compactGraph, Mode mode, ForkJoinPool pool) {
+        this.compactGraph = compactGraph;
+        this.mode = mode;
+        this.pool = pool;
     }
 
+    /**
+     * Records the cost of every following search in the given metrics. Every visited vertex is pushed and
+     * popped once, and the peak queue size is the largest number of vertices waiting to be expanded.
+     *
+     * @param metrics the metrics to record into, or null to stop recording
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Performs breadth-first search starting from the given vertex.
+     * The distance of each reached vertex is its depth, the number of edges from the start vertex.
+     * The visit order lists the vertices level by level.
+     *
+     * @param start the start vertex
+     * @return the result of the search
+     */
     @Override
-    public void search(Vertex<V> start) {
-        graph.BFS(start); // Perform breadth-first search on the graph starting from the given vertex
+    public SearchResult<V> search(Vertex<V> start) {
+        GraphEvents.BreadthFirst event = new GraphEvents.BreadthFirst();
+        event.begin();
+        long startTime = metrics != null ? System.nanoTime() : 0L;
+        CompactGraph<V> snapshot = snapshot(start.getId());
+        int source = snapshot.indexOf(start);
+        countLevels = metrics != null || event.isEnabled();
+        edgesScanned = 0;
+        peakQueue = 1;
+        result.reset(snapshot, source);
+        result.reach(source, 0, -1); // Mark the start vertex as visited
+        result.visit(source); // The start vertex is the first level
+
+        if (mode == Mode.DIRECTION_OPTIMIZING)
+            directionOptimizing(snapshot, source);
+        else if (mode == Mode.PARALLEL)
+            parallel(snapshot, source);
+        else
+            topDown(snapshot, 0);
+        if (metrics != null)
+            metrics.record(System.nanoTime() - startTime, result.visitCount(), edgesScanned, result.visitCount(),
+                    result.visitCount(), 0, peakQueue);
+        if (event.shouldCommit()) {
+            event.sourceId = source;
+            event.mode = mode.name();
+            event.settled = result.visitCount();
+            event.edgesScanned = edgesScanned;
+            event.commit();
+        }
+        return result;
+    }
+
+    /**
+     * Expands the levels top-down from the given position of the visit order until no vertex is left.
+     *
+     * @param snapshot the graph to search
+     * @param head     the position of the first vertex to expand
+     */
+    private void topDown(CompactGraph<V> snapshot, int head) {
+        int[] queue = result.visitOrderArray(); // The visit order doubles as the queue
+        long scanned = 0;
+        int peak = peakQueue;
+        while (head < result.visitCount()) {
+            peak = Math.max(peak, result.visitCount() - head);
+            int vertex = queue[head++]; // Retrieve the next vertex from the queue
+            double depth = result.distance(vertex) + 1; // Depth of the vertex's unvisited neighbors
+
+            int end = snapshot.offset(vertex + 1);
+            int edge = snapshot.offset(vertex);
+            scanned += end - edge;
+            for (; edge < end; edge++) {
+                int neighbor = snapshot.target(edge);
+                if (result.distance(neighbor) == Double.POSITIVE_INFINITY) { // If the neighbor is not visited
+                    result.reach(neighbor, depth, vertex); // Mark the neighbor as visited
+                    result.visit(neighbor); // Add the neighbor to the queue for further exploration
+                }
+            }
+        }
+        edgesScanned += scanned;
+        peakQueue = peak;
+    }
+
+    /**
+     * Expands the levels one at a time, choosing top-down or bottom-up for each level with the heuristic of
+     * Beamer et al. Bottom-up levels check incoming edges, which are the outgoing edges because addEdge
+     * always inserts both directions.
+     *
+     * @param snapshot the graph to search
+     * @param source   the start vertex id
+     */
+    private void directionOptimizing(CompactGraph<V> snapshot, int source) {
+        int vertexCount = snapshot.vertexCount();
+        int words = (vertexCount + 63) >>> 6;
+        if (visited.length < words) {
+            visited = new long[words];
+            frontier = new long[words];
+        }
+        Arrays.fill(visited, 0, words, 0L);
+        visited[source >>> 6] |= 1L << source;
+
+        int[] order = result.visitOrderArray();
+        int levelStart = 0;
+        int levelEnd = 1;
+        long frontierEdges = snapshot.degree(source); // Edges leaving the current level
+        long unexploredEdges = snapshot.edgeCount() - frontierEdges; // Edges leaving unvisited vertices
+        boolean bottomUp = false;
+        double depth = 0;
+        long scanned = 0;
+
+        while (levelStart < levelEnd) {
+            int levelSize = levelEnd - levelStart;
+            peakQueue = Math.max(peakQueue, levelSize);
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA)
+                bottomUp = true; // The frontier is heavy, let unvisited vertices find it instead
+            else if (bottomUp && levelSize < vertexCount / BETA)
+                bottomUp = false; // The frontier is small again, expand it directly
+            depth++;
+
+            if (bottomUp) {
+                Arrays.fill(frontier, 0, words, 0L);
+                for (int i = levelStart; i < levelEnd; i++) {
+                    frontier[order[i] >>> 6] |= 1L << order[i]; // Turn the level into a bitmap
+                }
+                for (int word = 0; word < words; word++) {
+                    long unvisited = ~visited[word];
+                    while (unvisited != 0) {
+                        int vertex = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+                        unvisited &= unvisited - 1;
+                        if (vertex >= vertexCount)
+                            break;
+                        for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+                            int parent = snapshot.target(edge);
+                            scanned++;
+                            if ((frontier[parent >>> 6] & (1L << parent)) != 0) { // A parent in the current level
+                                visited[word] |= 1L << vertex;
+                                result.reach(vertex, depth, parent);
+                                result.visit(vertex);
+                                break;
+                            }
+                        }
+                    }
+                }
+            } else {
+                for (int i = levelStart; i < levelEnd; i++) {
+                    int vertex = order[i];
+                    scanned += snapshot.degree(vertex);
+                    for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+                        int neighbor = snapshot.target(edge);
+                        if ((visited[neighbor >>> 6] & (1L << neighbor)) == 0) { // If the neighbor is not visited
+                            visited[neighbor >>> 6] |= 1L << neighbor;
+                            result.reach(neighbor, depth, vertex);
+                            result.visit(neighbor);
+                        }
+                    }
+                }
+            }
+
+            levelStart = levelEnd;
+            levelEnd = result.visitCount();
+            frontierEdges = 0;
+            for (int i = levelStart; i < levelEnd; i++) {
+                frontierEdges += snapshot.degree(order[i]);
+            }
+            unexploredEdges -= frontierEdges;
+        }
+        edgesScanned = scanned;
+    }
+
+    /**
+     * Expands the levels one at a time on the pool. Each level is cut into chunks, every chunk collects the
+     * neighbors it claims first in its own buffer, and the buffers are then copied behind the current level
+     * in chunk order. The visit order therefore lists the vertices level by level like a sequential search.
+     *
+     * @param snapshot the graph to search
+     * @param source   the start vertex id
+     */
+    private void parallel(CompactGraph<V> snapshot, int source) {
+        int words = (snapshot.vertexCount() + 63) >>> 6;
+        if (claimed.length() < words) {
+            claimed = new AtomicLongArray(words);
+        } else {
+            for (int word = 0; word < words; word++) {
+                claimed.set(word, 0L); // Clear the bitmap of the previous search
+            }
+        }
+        claimed.set(source >>> 6, 1L << source);
+
+        current = snapshot;
+        levelStart = 0;
+        levelEnd = 1;
+        depth = 0;
+        int parallelism = pool.getParallelism();
+        while (levelStart < levelEnd) {
+            depth++;
+            int levelSize = levelEnd - levelStart;
+            peakQueue = Math.max(peakQueue, levelSize);
+            if (countLevels) {
+                int[] order = result.visitOrderArray();
+                for (int i = levelStart; i < levelEnd; i++) {
+                    edgesScanned += snapshot.degree(order[i]); // Every vertex of the level scans all its edges
+                }
+            }
+            if (levelSize <= INLINE_LEVEL) { // Not worth two trips through the pool
+                expandInline(snapshot);
+                levelStart = levelEnd;
+                levelEnd = result.visitCount();
+                continue;
+            }
+            chunkLength = Math.max(MIN_CHUNK, levelSize / (parallelism * 4)); // A few chunks per thread to balance skew
+            int chunks = (levelSize + chunkLength - 1) / chunkLength;
+            if (chunkBuffers.length < chunks) {
+                chunkBuffers = Arrays.copyOf(chunkBuffers, chunks);
+                chunkSizes = new int[chunks];
+                chunkPositions = new int[chunks];
+            }
+
+            pool.invoke(new LevelTask(0, chunks, false)); // Claim the next level
+            int position = levelEnd;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                chunkPositions[chunk] = position; // Lay the chunk buffers out one after another
+                position += chunkSizes[chunk];
+            }
+            pool.invoke(new LevelTask(0, chunks, true)); // Copy the buffers into the visit order
+            result.setVisitCount(position);
+
+            levelStart = levelEnd;
+            levelEnd = position;
+        }
+        current = null;
+    }
+
+    /**
+     * Expands the current level on the calling thread, appending the next level straight to the visit order.
+     * Road networks and grids have thousands of small levels, where two trips through the pool per level cost
+     * more than the level itself. The bitmap is read and written without atomics: no pool task runs at the
+     * same time, and invoking the pool for a later level publishes the writes to its threads.
+     *
+     * @param snapshot the graph to search
+     */
+    private void expandInline(CompactGraph<V> snapshot) {
+        int[] order = result.visitOrderArray();
+        for (int i = levelStart; i < levelEnd; i++) {
+            int vertex = order[i];
+            for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+                int neighbor = snapshot.target(edge);
+                int word = neighbor >>> 6;
+                long bits = claimed.getPlain(word);
+                if ((bits & (1L << neighbor)) == 0) { // If the neighbor is not visited
+                    claimed.setPlain(word, bits | (1L << neighbor));
+                    result.reach(neighbor, depth, vertex);
+                    result.visit(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expands a range of chunks of the current level, or copies their buffers into the visit order.
+     */
+    private class LevelTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final int from; // First chunk of the range
+        private final int to; // End of the range, exclusive
+        private final boolean copy; // True to copy the chunk buffers, false to expand the chunks
+
+        /**
+         * Constructs a new task for the given range of chunks.
+         *
+         * @param from the first chunk
+         * @param to   the end of the range, exclusive
+         * @param copy true to copy the chunk buffers, false to expand the chunks
+         */
+        LevelTask(int from, int to, boolean copy) {
+            this.from = from;
+            this.to = to;
+            this.copy = copy;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LevelTask(from, middle, copy), new LevelTask(middle, to, copy));
+            } else if (copy) {
+                result.placeVisited(chunkPositions[from], chunkBuffers[from], chunkSizes[from]);
+            } else {
+                expand(from);
+            }
+        }
+
+        /**
+         * Scans the edges of the vertices in one chunk and claims their unvisited neighbors.
+         *
+         * @param chunk the chunk index
+         */
+        private void expand(int chunk) {
+            int[] order = result.visitOrderArray();
+            int[] buffer = chunkBuffers[chunk];
+            if (buffer == null)
+                buffer = new int[64];
+            int size = 0;
+            int start = levelStart + chunk * chunkLength;
+            int end = Math.min(start + chunkLength, levelEnd);
+            for (int i = start; i < end; i++) {
+                int vertex = order[i];
+                for (int edge = current.offset(vertex), last = current.offset(vertex + 1); edge < last; edge++) {
+                    int neighbor = current.target(edge);
+                    int word = neighbor >>> 6;
+                    long bit = 1L << neighbor;
+                    long bits = claimed.get(word);
+                    while ((bits & bit) == 0) { // Retry until the bit is set, by this thread or another one
+                        if (claimed.compareAndSet(word, bits, bits | bit)) {
+                            result.claim(neighbor, depth, vertex); // Only the claiming thread writes the entry
+                            if (size == buffer.length)
+                                buffer = Arrays.copyOf(buffer, size * 2);
+                            buffer[size++] = neighbor;
+                            break;
+                        }
+                        bits = claimed.get(word);
+                    }
+                }
+            }
+            chunkBuffers[chunk] = buffer; // Keep the grown buffer for the next levels and searches
+            chunkSizes[chunk] = size;
+        }
     }
 }
\ No newline at end of file
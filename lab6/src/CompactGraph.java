@@ -0,0 +1,365 @@
+import java.util.*;
+public class CompactGraph<V> {
+    private final Vertex<V>[] vertices; // Vertices by id
+    private final int[] offsets; // Start of each vertex's edges in targets and weights, with a trailing end marker
+    private final int[] targets; // Target vertex id of each edge
+    private final double[] weights; // Weight of each edge
+    private final long version; // Version of the weighted graph the snapshot was built from
+    private final long buildNanos; // Time it took to build the snapshot
+    private final int reusedVertexCount; // Number of vertices whose edges were copied from the previous snapshot
+
+    /**
+     * Constructs a new compact graph from compressed sparse row arrays. The arrays are used as is, not copied.
+     * The vertex at each position must have that position as its id.
+     *
+     * @param vertices the vertices by id
+     * @param offsets  the edge offsets, of length vertices.length + 1
+     * @param targets  the target id of each edge
+     * @param weights  the weight of each edge
+     */
+    CompactGraph(Vertex<V>[] vertices, int[] offsets, int[] targets, double[] weights) {
+        this(vertices, offsets, targets, weights, 0, 0, 0);
+    }
+
+    /**
+     * Constructs a compact graph without arrays, for subclasses that keep the graph elsewhere and override
+     * every accessor.
+     */
+    CompactGraph() {
+        this(null, null, null, null);
+    }
+
+    /**
+     * Constructs a new snapshot of a weighted graph from compressed sparse row arrays, with its build statistics.
+     *
+     * @param vertices          the vertices by id
+     * @param offsets           the edge offsets, of length vertices.length + 1
+     * @param targets           the target id of each edge
+     * @param weights           the weight of each edge
+     * @param version           the version of the weighted graph
+     * @param buildNanos        the time it took to build the snapshot
+     * @param reusedVertexCount the number of vertices whose edges were copied from the previous snapshot
+     */
+    CompactGraph(Vertex<V>[] vertices, int[] offsets, int[] targets, double[] weights, long version,
+                 long buildNanos, int reusedVertexCount) {
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.version = version;
+        this.buildNanos = buildNanos;
+        this.reusedVertexCount = reusedVertexCount;
+    }
+
+    /**
+     * Builds a compact graph from the vertices and their adjacent vertices.
+     *
+     * @param vertices the vertices of the graph by id
+     * @param <V>      the type of the vertex data
+     * @return the compact graph
+     */
+    static <V> CompactGraph<V> build(List<Vertex<V>> vertices) {
+        return build(vertices, null, 0);
+    }
+
+    /**
+     * Builds the next snapshot of a weighted graph. Vertices of the previous snapshot that are not marked
+     * dirty keep their edges, so each run of them is copied with one array copy instead of reading their
+     * maps again. The dirty marks are cleared as the vertices are read, and set again if an edge is rejected,
+     * so that the next build reads the same vertices.
+     *
+     * @param vertices the vertices of the graph by id
+     * @param previous the previous snapshot of the same graph, or null to read every vertex
+     * @param version  the version of the weighted graph
+     * @param <V>      the type of the vertex data
+     * @return the compact graph
+     * @throws IllegalArgumentException if an edge has a negative or non-finite weight
+     */
+    @SuppressWarnings("unchecked")
+    static <V> CompactGraph<V> build(List<Vertex<V>> vertices, CompactGraph<V> previous, long version) {
+        GraphEvents.Snapshot event = new GraphEvents.Snapshot();
+        event.begin();
+        long start = System.nanoTime();
+        Vertex<V>[] byId = (Vertex<V>[]) vertices.toArray(new Vertex<?>[0]);
+        int reusable = previous == null ? 0 : previous.vertexCount(); // Ids that may be copied from the previous snapshot
+        boolean[] reread = new boolean[byId.length]; // Vertices whose edges are read from their maps
+
+        int[] offsets = new int[byId.length + 1];
+        int reused = 0;
+        for (int i = 0; i < byId.length; i++) {
+            reread[i] = byId[i].clearDirty() || i >= reusable;
+            int degree = reread[i] ? byId[i].getAdjacentVertices().size() : previous.degree(i);
+            offsets[i + 1] = offsets[i] + degree; // Count the edges of each vertex
+            if (!reread[i])
+                reused++;
+        }
+
+        int[] targets = new int[offsets[byId.length]];
+        double[] weights = new double[offsets[byId.length]];
+        for (int i = 0; i < byId.length; ) {
+            if (!reread[i]) {
+                int end = i + 1; // Copy the whole run of unchanged vertices at once
+                while (end < byId.length && !reread[end]) {
+                    end++;
+                }
+                int from = previous.offsets[i];
+                System.arraycopy(previous.targets, from, targets, offsets[i], previous.offsets[end] - from);
+                System.arraycopy(previous.weights, from, weights, offsets[i], previous.offsets[end] - from);
+                i = end;
+                continue;
+            }
+            int edge = offsets[i];
+            for (Map.Entry<Vertex<V>, Double> entry : byId[i].getAdjacentVertices().entrySet()) {
+                targets[edge] = entry.getKey().getId(); // Store the id of the adjacent vertex
+                weights[edge] = entry.getValue(); // Store the weight of the edge
+                if (!isValidWeight(weights[edge])) {
+                    for (int j = 0; j < byId.length; j++) {
+                        if (reread[j])
+                            byId[j].markDirty(); // The previous snapshot is still the base of the next one
+                    }
+                    checkWeight(i, targets[edge], weights[edge]);
+                }
+                edge++;
+            }
+            i++;
+        }
+        CompactGraph<V> graph = new CompactGraph<>(byId, offsets, targets, weights, version,
+                System.nanoTime() - start, reused);
+        if (event.shouldCommit()) {
+            event.version = version;
+            event.vertexCount = graph.vertexCount();
+            event.edgeCount = graph.edgeCount();
+            event.reusedVertexCount = reused;
+            event.estimatedBytes = graph.estimatedBytes();
+            event.commit();
+        }
+        return graph;
+    }
+
+    /**
+     * Builds a compact graph straight from a list of undirected edges, without going through vertex maps.
+     * Like addEdge on a weighted graph, each edge is stored in both directions, and when the same pair of
+     * vertices appears more than once the weight that comes last wins. The edges of each vertex keep the
+     * order in which they first appear. The vertices get their positions as ids, so they must not belong
+     * to a weighted graph.
+     *
+     * @param vertices the vertices by id
+     * @param sources  the source vertex id of each edge
+     * @param targets  the target vertex id of each edge
+     * @param weights  the weight of each edge
+     * @param count    the number of edges
+     * @param <V>      the type of the vertex data
+     * @return the compact graph
+     * @throws IllegalArgumentException if an edge has an unknown vertex or a negative or non-finite weight
+     */
+    @SuppressWarnings("unchecked")
+    static <V> CompactGraph<V> fromEdges(List<Vertex<V>> vertices, int[] sources, int[] targets, double[] weights,
+                                         int count) {
+        long start = System.nanoTime();
+        Vertex<V>[] byId = (Vertex<V>[]) vertices.toArray(new Vertex<?>[0]);
+        int vertexCount = byId.length;
+        for (int i = 0; i < vertexCount; i++) {
+            if (byId[i].getId() != -1 && byId[i].getId() != i)
+                throw new IllegalArgumentException("Vertex " + byId[i] + " already belongs to another graph");
+            byId[i].setId(i);
+        }
+
+        int[] starts = new int[vertexCount + 1]; // Counting sort of both directions of every edge by source
+        for (int i = 0; i < count; i++) {
+            if (sources[i] < 0 || sources[i] >= vertexCount || targets[i] < 0 || targets[i] >= vertexCount)
+                throw new IllegalArgumentException("Edge " + sources[i] + "-" + targets[i] + " has an unknown vertex");
+            checkWeight(sources[i], targets[i], weights[i]);
+            starts[sources[i] + 1]++;
+            if (sources[i] != targets[i])
+                starts[targets[i] + 1]++; // A loop is stored once, like in a vertex map
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] arcTargets = new int[starts[vertexCount]];
+        double[] arcWeights = new double[starts[vertexCount]];
+        int[] next = Arrays.copyOf(starts, vertexCount); // Next free position of each vertex
+        for (int i = 0; i < count; i++) {
+            int arc = next[sources[i]]++;
+            arcTargets[arc] = targets[i];
+            arcWeights[arc] = weights[i];
+            if (sources[i] != targets[i]) {
+                arc = next[targets[i]]++;
+                arcTargets[arc] = sources[i];
+                arcWeights[arc] = weights[i];
+            }
+        }
+
+        int[] offsets = new int[vertexCount + 1];
+        int[] owner = new int[vertexCount]; // Vertex whose edges last used each target, to find repeated pairs
+        int[] slot = new int[vertexCount]; // Position of that edge
+        Arrays.fill(owner, -1);
+        int edge = 0; // Edges are compacted in place, never ahead of the arc being read
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            offsets[vertex] = edge;
+            for (int arc = starts[vertex]; arc < starts[vertex + 1]; arc++) {
+                int target = arcTargets[arc];
+                if (owner[target] == vertex) {
+                    arcWeights[slot[target]] = arcWeights[arc]; // The later weight replaces the earlier one
+                } else {
+                    owner[target] = vertex;
+                    slot[target] = edge;
+                    arcTargets[edge] = target;
+                    arcWeights[edge] = arcWeights[arc];
+                    edge++;
+                }
+            }
+        }
+        offsets[vertexCount] = edge;
+        if (edge < arcTargets.length) {
+            arcTargets = Arrays.copyOf(arcTargets, edge);
+            arcWeights = Arrays.copyOf(arcWeights, edge);
+        }
+        return new CompactGraph<>(byId, offsets, arcTargets, arcWeights, 0, System.nanoTime() - start, 0);
+    }
+
+    /**
+     * Checks if a weight can be searched: shortest path engines settle vertices in order of distance, which
+     * only holds for finite, non-negative weights.
+     *
+     * @param weight the edge weight
+     * @return true if the weight is finite and not negative
+     */
+    static boolean isValidWeight(double weight) {
+        return weight >= 0.0 && weight < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Rejects an edge whose weight cannot be searched.
+     *
+     * @param source the source vertex id
+     * @param target the target vertex id
+     * @param weight the edge weight
+     * @throws IllegalArgumentException if the weight is negative or not finite
+     */
+    static void checkWeight(int source, int target, double weight) {
+        if (!isValidWeight(weight))
+            throw new IllegalArgumentException("Edge " + source + "-" + target + " has weight " + weight
+                    + ", weights must be finite and non-negative");
+    }
+
+    /**
+     * Returns the version of the weighted graph this snapshot was built from.
+     *
+     * @return the version, or 0 if the graph was not built from a weighted graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the time it took to build this snapshot.
+     *
+     * @return the build time in nanoseconds
+     */
+    public long buildNanos() {
+        return buildNanos;
+    }
+
+    /**
+     * Returns the number of vertices whose edges were copied from the previous snapshot instead of being read again.
+     *
+     * @return the number of reused vertices
+     */
+    public int reusedVertexCount() {
+        return reusedVertexCount;
+    }
+
+    /**
+     * Estimates the memory held by the arrays of this snapshot, not counting the vertices themselves.
+     *
+     * @return the estimated size in bytes
+     */
+    public long estimatedBytes() {
+        long arrayHeader = 16; // Object header and length of each array
+        return 4 * arrayHeader + 4L * vertices.length + 4L * offsets.length + 4L * targets.length
+                + 8L * weights.length;
+    }
+
+    /**
+     * Returns the number of vertices in the graph.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the number of directed edges in the graph. Each undirected edge is counted in both directions.
+     *
+     * @return the number of directed edges
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the vertex id
+     * @return the vertex
+     */
+    public Vertex<V> getVertex(int id) {
+        return vertices[id];
+    }
+
+    /**
+     * Returns the id of the given vertex, checking that the vertex belongs to this graph.
+     *
+     * @param vertex the vertex
+     * @return the id of the vertex
+     */
+    public int indexOf(Vertex<V> vertex) {
+        int id = vertex.getId();
+        if (id < 0 || id >= vertices.length || vertices[id] != vertex)
+            throw new IllegalArgumentException("Vertex " + vertex + " is not in the graph");
+        return id;
+    }
+
+    /**
+     * Returns the position of the first edge of the given vertex. The edges of vertex v are the positions
+     * from offset(v) inclusive to offset(v + 1) exclusive.
+     *
+     * @param vertex the vertex id, or vertexCount() for the end of the last vertex's edges
+     * @return the position of the first edge
+     */
+    public int offset(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns the number of edges leaving the given vertex.
+     *
+     * @param vertex the vertex id
+     * @return the degree of the vertex
+     */
+    public int degree(int vertex) {
+        return offsets[vertex + 1] - offsets[vertex];
+    }
+
+    /**
+     * Returns the target vertex id of the edge at the given position.
+     *
+     * @param edge the edge position
+     * @return the target vertex id
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the weight of the edge at the given position.
+     *
+     * @param edge the edge position
+     * @return the weight of the edge
+     */
+    public double weight(int edge) {
+        return weights[edge];
+    }
+}
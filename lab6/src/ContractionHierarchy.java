@@ -0,0 +1,362 @@
+import java.util.Arrays;
+public class ContractionHierarchy<V> {
+    private static final int SIMULATION_SETTLE_LIMIT = 20; // Witness search budget when only estimating a priority
+    private static final int CONTRACTION_SETTLE_LIMIT = 200; // Witness search budget when adding shortcuts
+
+    private final CompactGraph<V> graph; // The graph the hierarchy was built for
+    private final int[] ranks; // Contraction position of each vertex, higher means more important
+    private final int[] upOffsets; // Start of each vertex's upward edges, with a trailing end marker
+    private final int[] upTargets; // Higher ranked endpoint of each upward edge
+    private final double[] upWeights; // Weight of each upward edge
+    private final int[] upMiddles; // Contracted vertex a shortcut bypasses, or -1 for an original edge
+
+    // Remaining graph during preprocessing, only holding edges between uncontracted vertices
+    private int[][] neighbors; // Neighbor ids of each vertex
+    private double[][] weights; // Edge weights parallel to neighbors
+    private int[][] middles; // Shortcut middle vertices parallel to neighbors
+    private int[] degrees; // Number of used entries in each neighbor array
+
+    // Witness search state, reset between searches by walking the touched vertices
+    private double[] witnessDistances;
+    private int[] witnessTouched;
+    private int witnessTouchedCount;
+    private IndexedMinHeap witnessHeap;
+    private int[] witnessTargetStamps; // Stamp of the last witness search each vertex was a target of
+    private int witnessStamp; // Stamp of the current witness search
+
+    /**
+     * Contracts all vertices of the graph and builds the upward search graph.
+     *
+     * @param graph the graph to preprocess, with every edge present in both directions
+     */
+    private ContractionHierarchy(CompactGraph<V> graph) {
+        this.graph = graph;
+        int vertexCount = graph.vertexCount();
+        ranks = new int[vertexCount];
+        upOffsets = new int[vertexCount + 1];
+
+        copyGraph();
+        witnessDistances = new double[vertexCount];
+        Arrays.fill(witnessDistances, Double.POSITIVE_INFINITY);
+        witnessTouched = new int[vertexCount];
+        witnessHeap = new IndexedMinHeap(vertexCount);
+        witnessTargetStamps = new int[vertexCount];
+
+        int[] contractedNeighbors = new int[vertexCount]; // Neighbors already contracted, spreads contraction evenly
+        int[] levels = new int[vertexCount]; // Length of the longest chain of contracted vertices below each vertex
+        IndexedMinHeap order = new IndexedMinHeap(vertexCount);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            order.insert(vertex, priority(vertex, 0, 0));
+        }
+
+        int[][] upNeighbors = new int[vertexCount][]; // Upward edges of each vertex, recorded when it is contracted
+        double[][] upWeightLists = new double[vertexCount][];
+        int[][] upMiddleLists = new int[vertexCount][];
+        int rank = 0;
+        while (!order.isEmpty()) {
+            int vertex = order.poll();
+            double priority = priority(vertex, contractedNeighbors[vertex], levels[vertex]);
+            if (!order.isEmpty() && priority > order.getKey(order.peek())) {
+                order.insert(vertex, priority); // Lazy update: the priority went up, so try the next vertex first
+                continue;
+            }
+
+            contract(vertex, false); // Add the shortcuts between its remaining neighbors
+            ranks[vertex] = rank++;
+            int degree = degrees[vertex];
+            upNeighbors[vertex] = Arrays.copyOf(neighbors[vertex], degree); // All remaining neighbors rank higher
+            upWeightLists[vertex] = Arrays.copyOf(weights[vertex], degree);
+            upMiddleLists[vertex] = Arrays.copyOf(middles[vertex], degree);
+            upOffsets[vertex + 1] = degree;
+
+            for (int i = 0; i < degree; i++) {
+                int neighbor = neighbors[vertex][i];
+                removeEdge(neighbor, vertex); // The contracted vertex leaves the remaining graph
+                contractedNeighbors[neighbor]++; // The new priority is picked up lazily when the neighbor is polled
+                levels[neighbor] = Math.max(levels[neighbor], levels[vertex] + 1);
+            }
+        }
+
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            upOffsets[vertex + 1] += upOffsets[vertex]; // Turn the degrees into offsets
+        }
+        upTargets = new int[upOffsets[vertexCount]];
+        upWeights = new double[upOffsets[vertexCount]];
+        upMiddles = new int[upOffsets[vertexCount]];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            System.arraycopy(upNeighbors[vertex], 0, upTargets, upOffsets[vertex], upNeighbors[vertex].length);
+            System.arraycopy(upWeightLists[vertex], 0, upWeights, upOffsets[vertex], upNeighbors[vertex].length);
+            System.arraycopy(upMiddleLists[vertex], 0, upMiddles, upOffsets[vertex], upNeighbors[vertex].length);
+        }
+
+        neighbors = null; // The remaining graph and witness state are only needed while contracting
+        weights = null;
+        middles = null;
+        degrees = null;
+        witnessDistances = null;
+        witnessTouched = null;
+        witnessHeap = null;
+        witnessTargetStamps = null;
+    }
+
+    /**
+     * Builds a contraction hierarchy for the given graph. Vertices are contracted in order of their edge
+     * difference (shortcuts added minus edges removed) plus their number of contracted neighbors and their
+     * level in the hierarchy so far, with lazy priority updates.
+     *
+     * @param graph the graph to preprocess, with every edge present in both directions
+     * @param <V>   the type of the vertex data
+     * @return the contraction hierarchy
+     */
+    public static <V> ContractionHierarchy<V> build(CompactGraph<V> graph) {
+        return new ContractionHierarchy<>(graph);
+    }
+
+    /**
+     * Copies the graph into growable per-vertex arrays, dropping self loops and keeping the lightest of
+     * parallel edges.
+     */
+    private void copyGraph() {
+        int vertexCount = graph.vertexCount();
+        neighbors = new int[vertexCount][];
+        weights = new double[vertexCount][];
+        middles = new int[vertexCount][];
+        degrees = new int[vertexCount];
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            int degree = graph.degree(vertex);
+            neighbors[vertex] = new int[Math.max(degree, 1)];
+            weights[vertex] = new double[Math.max(degree, 1)];
+            middles[vertex] = new int[Math.max(degree, 1)];
+            for (int edge = graph.offset(vertex), end = graph.offset(vertex + 1); edge < end; edge++) {
+                if (graph.target(edge) != vertex)
+                    addEdge(vertex, graph.target(edge), graph.weight(edge), -1);
+            }
+        }
+    }
+
+    /**
+     * Adds an edge to the remaining graph, or lowers the weight of an existing edge between the same vertices.
+     *
+     * @param from   the vertex that owns the edge entry
+     * @param to     the other endpoint
+     * @param weight the weight of the edge
+     * @param middle the contracted vertex the edge bypasses, or -1 for an original edge
+     */
+    private void addEdge(int from, int to, double weight, int middle) {
+        for (int i = 0; i < degrees[from]; i++) {
+            if (neighbors[from][i] == to) {
+                if (weight < weights[from][i]) {
+                    weights[from][i] = weight;
+                    middles[from][i] = middle;
+                }
+                return;
+            }
+        }
+        if (degrees[from] == neighbors[from].length) {
+            int capacity = neighbors[from].length * 2; // Grow the arrays of the vertex
+            neighbors[from] = Arrays.copyOf(neighbors[from], capacity);
+            weights[from] = Arrays.copyOf(weights[from], capacity);
+            middles[from] = Arrays.copyOf(middles[from], capacity);
+        }
+        neighbors[from][degrees[from]] = to;
+        weights[from][degrees[from]] = weight;
+        middles[from][degrees[from]] = middle;
+        degrees[from]++;
+    }
+
+    /**
+     * Removes the edge entry to the given vertex from the remaining graph.
+     *
+     * @param from the vertex that owns the edge entry
+     * @param to   the other endpoint
+     */
+    private void removeEdge(int from, int to) {
+        for (int i = 0; i < degrees[from]; i++) {
+            if (neighbors[from][i] == to) {
+                int last = --degrees[from]; // Move the last entry into the gap
+                neighbors[from][i] = neighbors[from][last];
+                weights[from][i] = weights[from][last];
+                middles[from][i] = middles[from][last];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the contraction priority of a vertex by simulating its contraction.
+     *
+     * @param vertex              the vertex id
+     * @param contractedNeighbors the number of neighbors already contracted
+     * @param level               the length of the longest chain of contracted vertices below the vertex
+     * @return the priority, lower is contracted first
+     */
+    private double priority(int vertex, int contractedNeighbors, int level) {
+        return contract(vertex, true) - degrees[vertex] + contractedNeighbors + level;
+    }
+
+    /**
+     * Finds the shortcuts needed to contract a vertex: for each pair of its neighbors, a shortcut is needed
+     * unless a witness search that avoids the vertex finds a path at most as long as the path through it.
+     *
+     * @param vertex   the vertex id
+     * @param simulate true to only count the shortcuts, false to add them to the remaining graph
+     * @return the number of shortcuts
+     */
+    private int contract(int vertex, boolean simulate) {
+        int shortcuts = 0;
+        int degree = degrees[vertex];
+        double maxWeight = 0.0;
+        for (int i = 0; i < degree; i++) {
+            maxWeight = Math.max(maxWeight, weights[vertex][i]);
+        }
+
+        for (int i = 0; i < degree - 1; i++) {
+            int from = neighbors[vertex][i];
+            double toVertex = weights[vertex][i];
+            witnessStamp++;
+            for (int j = i + 1; j < degree; j++) {
+                witnessTargetStamps[neighbors[vertex][j]] = witnessStamp; // The neighbors the search has to reach
+            }
+            witnessSearch(from, vertex, toVertex + maxWeight, degree - i - 1,
+                    simulate ? SIMULATION_SETTLE_LIMIT : CONTRACTION_SETTLE_LIMIT);
+            for (int j = i + 1; j < degree; j++) {
+                int to = neighbors[vertex][j];
+                double through = toVertex + weights[vertex][j]; // Length of the path through the vertex
+                if (witnessDistances[to] > through) {
+                    shortcuts++;
+                    if (!simulate) {
+                        addEdge(from, to, through, vertex);
+                        addEdge(to, from, through, vertex);
+                    }
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Runs a bounded Dijkstra search over the remaining graph that never enters the excluded vertex.
+     * Distances beyond the bound or past the settle limit stay infinite, which only adds extra shortcuts.
+     *
+     * @param source      the start vertex id
+     * @param excluded    the vertex being contracted
+     * @param maxDistance the largest distance worth finding
+     * @param targetCount the number of vertices marked as targets, the search stops once all are settled
+     * @param settleLimit the number of vertices to settle before giving up
+     */
+    private void witnessSearch(int source, int excluded, double maxDistance, int targetCount, int settleLimit) {
+        for (int i = 0; i < witnessTouchedCount; i++) {
+            witnessDistances[witnessTouched[i]] = Double.POSITIVE_INFINITY; // Clear the previous search
+        }
+        witnessTouchedCount = 0;
+        witnessHeap.clear();
+
+        witnessDistances[source] = 0.0;
+        witnessTouched[witnessTouchedCount++] = source;
+        witnessHeap.insert(source, 0.0);
+        int settled = 0;
+        while (!witnessHeap.isEmpty() && settled++ < settleLimit) {
+            int vertex = witnessHeap.poll();
+            double distance = witnessDistances[vertex];
+            if (distance > maxDistance)
+                break;
+            if (witnessTargetStamps[vertex] == witnessStamp && --targetCount == 0)
+                break; // Every target is settled
+            for (int i = 0; i < degrees[vertex]; i++) {
+                int neighbor = neighbors[vertex][i];
+                double newDistance = distance + weights[vertex][i];
+                if (neighbor != excluded && newDistance < witnessDistances[neighbor]) {
+                    if (witnessDistances[neighbor] == Double.POSITIVE_INFINITY)
+                        witnessTouched[witnessTouchedCount++] = neighbor;
+                    witnessDistances[neighbor] = newDistance;
+                    witnessHeap.insertOrDecrease(neighbor, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the graph the hierarchy was built for.
+     *
+     * @return the graph
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the contraction rank of a vertex.
+     *
+     * @param vertex the vertex id
+     * @return the rank, from 0 for the first contracted vertex
+     */
+    public int rank(int vertex) {
+        return ranks[vertex];
+    }
+
+    /**
+     * Returns the number of upward edges, original edges and shortcuts together.
+     *
+     * @return the number of upward edges
+     */
+    public int upwardEdgeCount() {
+        return upTargets.length;
+    }
+
+    /**
+     * Returns the position of the first upward edge of a vertex.
+     *
+     * @param vertex the vertex id, or vertexCount() for the end of the last vertex's edges
+     * @return the position of the first upward edge
+     */
+    int upOffset(int vertex) {
+        return upOffsets[vertex];
+    }
+
+    /**
+     * Returns the higher ranked endpoint of an upward edge.
+     *
+     * @param edge the edge position
+     * @return the target vertex id
+     */
+    int upTarget(int edge) {
+        return upTargets[edge];
+    }
+
+    /**
+     * Returns the weight of an upward edge.
+     *
+     * @param edge the edge position
+     * @return the weight of the edge
+     */
+    double upWeight(int edge) {
+        return upWeights[edge];
+    }
+
+    /**
+     * Returns the vertex bypassed by an upward edge.
+     *
+     * @param edge the edge position
+     * @return the middle vertex id of a shortcut, or -1 for an original edge
+     */
+    int upMiddle(int edge) {
+        return upMiddles[edge];
+    }
+
+    /**
+     * Finds the upward edge between two vertices, starting from the lower ranked one.
+     *
+     * @param a one endpoint
+     * @param b the other endpoint
+     * @return the edge position
+     */
+    int findUpEdge(int a, int b) {
+        int low = ranks[a] < ranks[b] ? a : b;
+        int high = low == a ? b : a;
+        for (int edge = upOffsets[low], end = upOffsets[low + 1]; edge < end; edge++) {
+            if (upTargets[edge] == high)
+                return edge;
+        }
+        throw new IllegalStateException("No upward edge between " + a + " and " + b);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+import java.util.Arrays;
+public class ContractionHierarchySearch<V> implements PathSearch<V> {
+    private final ContractionHierarchy<V> hierarchy; // The preprocessed hierarchy to search
+    private final SearchResult<V> forward = new SearchResult<>(); // Upward search from the source
+    private final SearchResult<V> backward = new SearchResult<>(); // Upward search from the target
+    private final SearchResult<V> result = new SearchResult<>(); // Unpacked path returned to callers
+    private final IndexedMinHeap forwardHeap = new IndexedMinHeap(0);
+    private final IndexedMinHeap backwardHeap = new IndexedMinHeap(0);
+    private int[] hops = new int[0]; // Vertices of the upward path from source to target
+    private int[] stack = new int[0]; // Pending pairs of vertices whose connecting edge still has to be unpacked
+
+    /**
+     * Constructs a new search over the given contraction hierarchy.
+     *
+     * @param hierarchy the contraction hierarchy
+     */
+    public ContractionHierarchySearch(ContractionHierarchy<V> hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Finds the shortest path with a bidirectional search that only follows edges to higher ranked vertices,
+     * then unpacks the shortcuts on the path into original edges.
+     * The visit order of the result is the unpacked path from source to target.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> shortestPath(Vertex<V> source, Vertex<V> target) {
+        CompactGraph<V> graph = hierarchy.getGraph();
+        int from = graph.indexOf(source);
+        int to = graph.indexOf(target);
+
+        forward.reset(graph, from);
+        backward.reset(graph, to);
+        forwardHeap.clear();
+        backwardHeap.clear();
+        forwardHeap.ensureCapacity(graph.vertexCount());
+        backwardHeap.ensureCapacity(graph.vertexCount());
+        forward.reach(from, 0.0, -1);
+        backward.reach(to, 0.0, -1);
+        forwardHeap.insert(from, 0.0);
+        backwardHeap.insert(to, 0.0);
+
+        double bestDistance = Double.POSITIVE_INFINITY;
+        int meetingVertex = -1;
+        while (true) {
+            // A side stops once its smallest key cannot improve the best path
+            boolean forwardActive = !forwardHeap.isEmpty() && forwardHeap.getKey(forwardHeap.peek()) < bestDistance;
+            boolean backwardActive = !backwardHeap.isEmpty() && backwardHeap.getKey(backwardHeap.peek()) < bestDistance;
+            if (!forwardActive && !backwardActive)
+                break;
+
+            boolean expandForward = forwardActive && (!backwardActive
+                    || forwardHeap.getKey(forwardHeap.peek()) <= backwardHeap.getKey(backwardHeap.peek()));
+            int vertex = expandForward ? settle(forwardHeap, forward) : settle(backwardHeap, backward);
+            double throughVertex = forward.distance(vertex) + backward.distance(vertex);
+            if (throughVertex < bestDistance) { // Both searches reached the vertex
+                bestDistance = throughVertex;
+                meetingVertex = vertex;
+            }
+        }
+
+        result.reset(graph, from);
+        if (meetingVertex != -1)
+            unpack(from, to, meetingVertex);
+        return result;
+    }
+
+    /**
+     * Settles the closest vertex of one upward search and relaxes its upward edges.
+     *
+     * @param heap   the heap of the search
+     * @param search the state of the search
+     * @return the settled vertex id
+     */
+    private int settle(IndexedMinHeap heap, SearchResult<V> search) {
+        int vertex = heap.poll();
+        double distance = search.distance(vertex);
+        for (int edge = hierarchy.upOffset(vertex), end = hierarchy.upOffset(vertex + 1); edge < end; edge++) {
+            int neighbor = hierarchy.upTarget(edge);
+            double newDistance = distance + hierarchy.upWeight(edge);
+            if (newDistance < search.distance(neighbor)) {
+                search.reach(neighbor, newDistance, vertex);
+                heap.insertOrDecrease(neighbor, newDistance);
+            }
+        }
+        return vertex;
+    }
+
+    /**
+     * Writes the path through the meeting vertex into the result, replacing every shortcut by the original
+     * edges it stands for.
+     *
+     * @param from          the source vertex id
+     * @param to            the target vertex id
+     * @param meetingVertex the highest vertex of the upward path
+     */
+    private void unpack(int from, int to, int meetingVertex) {
+        int hopCount = 0;
+        for (int vertex = meetingVertex; vertex != -1; vertex = forward.predecessor(vertex)) {
+            hops = push(hops, hopCount++, vertex); // Source half, collected from the meeting vertex back to the source
+        }
+        for (int i = 0, j = hopCount - 1; i < j; i++, j--) {
+            int swap = hops[i]; // Put the source half in path order
+            hops[i] = hops[j];
+            hops[j] = swap;
+        }
+        for (int vertex = backward.predecessor(meetingVertex); vertex != -1; vertex = backward.predecessor(vertex)) {
+            hops = push(hops, hopCount++, vertex); // Target half, already in path order
+        }
+
+        result.reach(from, 0.0, -1);
+        result.visit(from);
+        for (int i = 1; i < hopCount; i++) {
+            int stackSize = 0;
+            stack = push(stack, stackSize++, hops[i]); // Pairs are pushed end first so they pop in path order
+            stack = push(stack, stackSize++, hops[i - 1]);
+            while (stackSize > 0) {
+                int a = stack[--stackSize];
+                int b = stack[--stackSize];
+                int edge = hierarchy.findUpEdge(a, b);
+                int middle = hierarchy.upMiddle(edge);
+                if (middle == -1) { // An original edge, append it to the path
+                    if (result.distance(b) == Double.POSITIVE_INFINITY) { // Zero weight loops revisit a vertex, skip them
+                        result.reach(b, result.distance(a) + hierarchy.upWeight(edge), a);
+                        result.visit(b);
+                    }
+                } else { // A shortcut, unpack a to middle first and then middle to b
+                    stack = push(stack, stackSize++, b);
+                    stack = push(stack, stackSize++, middle);
+                    stack = push(stack, stackSize++, middle);
+                    stack = push(stack, stackSize++, a);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores a value in a growable array, doubling the array when it is full.
+     *
+     * @param array the array
+     * @param index the index to store at
+     * @param value the value
+     * @return the array, or a larger copy of it
+     */
+    private static int[] push(int[] array, int index, int value) {
+        if (index == array.length)
+            array = Arrays.copyOf(array, Math.max(16, array.length * 2));
+        array[index] = value;
+        return array;
+    }
+}
\ No newline at end of file
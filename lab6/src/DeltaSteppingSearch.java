@@ -0,0 +1,400 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+public class DeltaSteppingSearch<V> implements Search<V> {
+    private static final int PARALLEL_THRESHOLD = 1024; // Smaller frontiers are relaxed on the calling thread
+
+    private WeightedGraph<V> graph; // The graph to perform the search on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the search on, if constructed from one
+    private final double fixedDelta; // Bucket width, or 0 to derive it from the edge weights
+    private final ForkJoinPool pool; // Pool that relaxes large frontiers
+    private final SearchResult<V> result = new SearchResult<>(); // Result reused across searches
+
+    private CompactGraph<V> current; // Graph of the running search
+    private double delta; // Bucket width of the running search
+    private CompactGraph<V> deltaGraph; // Graph the bucket width was last derived for
+    private AtomicLongArray distances = new AtomicLongArray(0); // Bits of the tentative distances, lowered with CAS
+    private int[] parents = new int[0]; // Vertex whose edge gave each tentative distance, or -1
+    private AtomicIntegerArray improved = new AtomicIntegerArray(0); // Relax round that last settled each parent
+    private int round; // Current relax round, numbered across searches
+    private int[][] buckets = new int[0][]; // Vertices waiting in each bucket, may hold stale entries
+    private int[] bucketSizes = new int[0]; // Number of entries in each bucket
+    private int bucketCount; // Number of buckets in use
+    private int[] frontier = new int[0]; // Vertices relaxed in the current round
+    private int frontierSize; // Number of vertices in the frontier
+    private int[] frontierStamps = new int[0]; // Round in which each vertex last joined the frontier
+    private int stamp; // Current round
+    private boolean[] settled = new boolean[0]; // Vertices whose bucket has been emptied
+    private int[] order = new int[0]; // Vertices in the order their bucket was processed
+    private int orderSize; // Number of vertices in the order
+    private boolean light; // True to relax edges of weight up to delta, false to relax the heavier ones
+    private int chunkLength; // Frontier vertices per chunk
+    private boolean picking; // True while the relax tasks pick the winning requests, false while they relax
+    private int[][] chunkTargets = new int[0][]; // Vertex each successful relaxation of a chunk lowered
+    private int[][] chunkParents = new int[0][]; // Frontier vertex each successful relaxation comes from
+    private double[][] chunkDistances = new double[0][]; // Distance each successful relaxation offered
+    private int[] chunkSizes = new int[0]; // Number of successful relaxations in each chunk
+
+    /**
+     * Constructs a new delta-stepping search with the given graph and a bucket width derived from its weights.
+     *
+     * @param graph the graph to perform the search on
+     */
+    public DeltaSteppingSearch(WeightedGraph<V> graph) {
+        this.graph = graph;
+        this.fixedDelta = 0.0;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Constructs a new delta-stepping search that runs directly on the given compact graph, with a bucket
+     * width derived from its weights.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     */
+    public DeltaSteppingSearch(CompactGraph<V> compactGraph) {
+        this(compactGraph, 0.0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new delta-stepping search that runs directly on the given compact graph.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     * @param delta        the bucket width, or 0 to derive it from the edge weights
+     * @param pool         the pool that relaxes large frontiers
+     */
+    public DeltaSteppingSearch(CompactGraph<V> compactGraph, double delta, ForkJoinPool pool) {
+        if (delta < 0)
+            throw new IllegalArgumentException("Bucket width must not be negative, got " + delta);
+        this.compactGraph = compactGraph;
+        this.fixedDelta = delta;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Derives a bucket width from the edge weights. Meyer and Sanders suggest a width of about the maximum
+     * weight over the average degree for uniform weights; twice the mean weight is used in place of the
+     * maximum so that a few very heavy edges do not make every edge light.
+     *
+     * @param snapshot the graph
+     * @return the bucket width
+     */
+    static double autoDelta(CompactGraph<?> snapshot) {
+        int edgeCount = snapshot.edgeCount();
+        if (edgeCount == 0)
+            return 1.0;
+        double total = 0.0;
+        for (int edge = 0; edge < edgeCount; edge++) {
+            total += snapshot.weight(edge);
+        }
+        double averageDegree = (double) edgeCount / snapshot.vertexCount();
+        double width = 2.0 * (total / edgeCount) / averageDegree;
+        return width > 0.0 ? width : 1.0; // All weights are zero, any width works
+    }
+
+    /**
+     * Computes the distances from the given vertex by processing buckets of width delta in order. Within a
+     * bucket, light edges are relaxed in rounds until the bucket stays empty, then the heavy edges of all
+     * vertices that passed through the bucket are relaxed once. Each round relaxes the frontier on the pool,
+     * lowering distances with compare-and-set, and then picks in parallel one relaxation per improved vertex
+     * whose offer equals its final distance, so a vertex's predecessor always lies on a shortest path to it.
+     * The visit order lists the vertices bucket by bucket.
+     *
+     * @param start the start vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> search(Vertex<V> start) {
+        CompactGraph<V> snapshot = snapshot(start.getId());
+        int source = snapshot.indexOf(start);
+        prepare(snapshot);
+
+        distances.setPlain(source, Double.doubleToLongBits(0.0));
+        parents[source] = -1;
+        addToBucket(source);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            int bucketStart = orderSize;
+            while (bucketSizes[bucket] > 0) {
+                stamp++;
+                frontierSize = 0;
+                for (int i = 0; i < bucketSizes[bucket]; i++) {
+                    int vertex = buckets[bucket][i];
+                    if (bucketOf(vertex) == bucket && frontierStamps[vertex] != stamp) { // Skip stale and repeated entries
+                        frontierStamps[vertex] = stamp;
+                        frontier[frontierSize++] = vertex;
+                        if (!settled[vertex]) {
+                            settled[vertex] = true;
+                            order[orderSize++] = vertex;
+                        }
+                    }
+                }
+                bucketSizes[bucket] = 0;
+                relax(true);
+            }
+
+            frontierSize = orderSize - bucketStart; // Every vertex that passed through the bucket
+            System.arraycopy(order, bucketStart, frontier, 0, frontierSize);
+            relax(false);
+        }
+
+        writeResult(snapshot, source);
+        current = null;
+        return result;
+    }
+
+    /**
+     * Sizes and clears the per-search state for the given graph.
+     *
+     * @param snapshot the graph to search
+     */
+    private void prepare(CompactGraph<V> snapshot) {
+        int vertexCount = snapshot.vertexCount();
+        current = snapshot;
+        if (deltaGraph != snapshot) {
+            delta = fixedDelta > 0.0 ? fixedDelta : autoDelta(snapshot); // Only rescan the weights of a new snapshot
+            deltaGraph = snapshot;
+        }
+        if (distances.length() < vertexCount) {
+            distances = new AtomicLongArray(vertexCount);
+            parents = new int[vertexCount];
+            improved = new AtomicIntegerArray(vertexCount);
+            frontier = new int[vertexCount];
+            frontierStamps = new int[vertexCount];
+            settled = new boolean[vertexCount];
+            order = new int[vertexCount];
+        }
+        long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            distances.setPlain(vertex, infinity); // Published to the pool threads when the first round is invoked
+        }
+        Arrays.fill(settled, 0, vertexCount, false);
+        Arrays.fill(bucketSizes, 0);
+        bucketCount = 0;
+        orderSize = 0;
+    }
+
+    /**
+     * Returns the bucket of a vertex for its current tentative distance.
+     *
+     * @param vertex the vertex id
+     * @return the bucket index
+     */
+    private int bucketOf(int vertex) {
+        return (int) (distance(vertex) / delta);
+    }
+
+    /**
+     * Returns the tentative distance of a vertex.
+     *
+     * @param vertex the vertex id
+     * @return the tentative distance
+     */
+    private double distance(int vertex) {
+        return Double.longBitsToDouble(distances.getPlain(vertex));
+    }
+
+    /**
+     * Appends a vertex to the bucket of its current tentative distance.
+     *
+     * @param vertex the vertex id
+     */
+    private void addToBucket(int vertex) {
+        int bucket = bucketOf(vertex);
+        if (bucket >= buckets.length) {
+            int capacity = Math.max(bucket + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, capacity);
+            bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+        }
+        if (buckets[bucket] == null)
+            buckets[bucket] = new int[16];
+        else if (bucketSizes[bucket] == buckets[bucket].length)
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        buckets[bucket][bucketSizes[bucket]++] = vertex;
+        bucketCount = Math.max(bucketCount, bucket + 1);
+    }
+
+    /**
+     * Relaxes the light or heavy edges of the frontier, in two parallel passes over chunks of the frontier
+     * for large frontiers. The first pass lowers the distance of each neighbor with a compare-and-set on the
+     * bits of its distance, which order like the distances since they are never negative, and keeps every
+     * relaxation that succeeded. The second pass keeps, for each improved vertex, one of the relaxations
+     * whose offer equals its final distance and records its vertex as the predecessor. The winners are then
+     * moved to their new buckets, the only step left on the calling thread, once per improved vertex.
+     *
+     * @param light true to relax edges of weight up to delta, false to relax the heavier ones
+     */
+    private void relax(boolean light) {
+        if (frontierSize == 0)
+            return;
+        this.light = light;
+        chunkLength = Math.max(PARALLEL_THRESHOLD, frontierSize / (pool.getParallelism() * 4));
+        int chunks = (frontierSize + chunkLength - 1) / chunkLength;
+        if (chunkTargets.length < chunks) {
+            chunkTargets = Arrays.copyOf(chunkTargets, chunks);
+            chunkParents = Arrays.copyOf(chunkParents, chunks);
+            chunkDistances = Arrays.copyOf(chunkDistances, chunks);
+            chunkSizes = new int[chunks];
+        }
+
+        round++;
+        picking = false;
+        run(chunks); // Lower the distances
+        picking = true;
+        run(chunks); // Pick one winning relaxation per improved vertex
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int[] winners = chunkTargets[chunk];
+            for (int i = 0; i < chunkSizes[chunk]; i++) {
+                addToBucket(winners[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs one pass of relax tasks over all chunks of the frontier.
+     *
+     * @param chunks the number of chunks
+     */
+    private void run(int chunks) {
+        RelaxTask task = new RelaxTask(0, chunks);
+        if (chunks == 1)
+            task.compute(); // Not worth a trip through the pool
+        else
+            pool.invoke(task);
+    }
+
+    /**
+     * Copies the final distances and the predecessors recorded during relaxation into the result.
+     *
+     * @param snapshot the graph that was searched
+     * @param source   the start vertex id
+     */
+    private void writeResult(CompactGraph<V> snapshot, int source) {
+        result.reset(snapshot, source);
+        result.placeVisited(0, order, orderSize);
+        result.setVisitCount(orderSize);
+        for (int i = 0; i < orderSize; i++) {
+            int vertex = order[i];
+            result.claim(vertex, distance(vertex), parents[vertex]);
+        }
+    }
+
+    /**
+     * Relaxes the edges of a range of frontier chunks, or picks the winning relaxations of the chunks.
+     */
+    private class RelaxTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final int from; // First chunk of the range
+        private final int to; // End of the range, exclusive
+
+        /**
+         * Constructs a new task for the given range of chunks.
+         *
+         * @param from the first chunk
+         * @param to   the end of the range, exclusive
+         */
+        RelaxTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RelaxTask(from, middle), new RelaxTask(middle, to));
+            } else if (picking) {
+                pickWinners(from);
+            } else {
+                relaxChunk(from);
+            }
+        }
+
+        /**
+         * Lowers the distance of the neighbor of every selected edge of one frontier chunk, and keeps each
+         * relaxation that succeeded. Another chunk may lower the same distance further in the same round.
+         *
+         * @param chunk the chunk index
+         */
+        private void relaxChunk(int chunk) {
+            int[] targets = chunkTargets[chunk];
+            int[] requesters = chunkParents[chunk];
+            double[] offers = chunkDistances[chunk];
+            if (targets == null) {
+                targets = new int[64];
+                requesters = new int[64];
+                offers = new double[64];
+            }
+            int size = 0;
+            int start = chunk * chunkLength;
+            int end = Math.min(start + chunkLength, frontierSize);
+            for (int i = start; i < end; i++) {
+                int vertex = frontier[i];
+                double distance = distance(vertex); // May already be lowered by another chunk, still a real path
+                for (int edge = current.offset(vertex), last = current.offset(vertex + 1); edge < last; edge++) {
+                    double weight = current.weight(edge);
+                    if ((weight <= delta) != light)
+                        continue;
+                    int neighbor = current.target(edge);
+                    long offer = Double.doubleToLongBits(distance + weight);
+                    long bits = distances.get(neighbor);
+                    while (offer < bits && !distances.compareAndSet(neighbor, bits, offer)) {
+                        bits = distances.get(neighbor); // Another chunk lowered it first, try again
+                    }
+                    if (offer < bits) {
+                        if (size == targets.length) {
+                            targets = Arrays.copyOf(targets, size * 2);
+                            requesters = Arrays.copyOf(requesters, size * 2);
+                            offers = Arrays.copyOf(offers, size * 2);
+                        }
+                        targets[size] = neighbor;
+                        requesters[size] = vertex;
+                        offers[size] = distance + weight;
+                        size++;
+                    }
+                }
+            }
+            chunkTargets[chunk] = targets; // Keep the grown buffers for the next rounds and searches
+            chunkParents[chunk] = requesters;
+            chunkDistances[chunk] = offers;
+            chunkSizes[chunk] = size;
+        }
+
+        /**
+         * Keeps the relaxations of one chunk that won their vertex: the offer equals the final distance of
+         * the round, and no other relaxation with the same offer claimed the vertex first. The winner records
+         * its frontier vertex as the predecessor and is moved to the front of the chunk's buffers.
+         *
+         * @param chunk the chunk index
+         */
+        private void pickWinners(int chunk) {
+            int[] targets = chunkTargets[chunk];
+            int[] requesters = chunkParents[chunk];
+            double[] offers = chunkDistances[chunk];
+            int winners = 0;
+            for (int i = 0; i < chunkSizes[chunk]; i++) {
+                int neighbor = targets[i];
+                if (Double.doubleToLongBits(offers[i]) != distances.get(neighbor))
+                    continue; // A better offer came later in the round
+                int claimed = improved.get(neighbor);
+                if (claimed != round && improved.compareAndSet(neighbor, claimed, round)) {
+                    parents[neighbor] = requesters[i]; // Only the winning thread writes the entry
+                    targets[winners++] = neighbor;
+                }
+            }
+            chunkSizes[chunk] = winners;
+        }
+    }
+}
@@ -1,6 +1,9 @@
-import java.util.Map;
-public class DijkstraSearch<V> implements Search<V> {
+public class DijkstraSearch<V> implements Search<V>, PathSearch<V> {
     private WeightedGraph<V> graph; // The graph to perform the search on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the search on, if constructed from one
+    private final SearchResult<V> result = new SearchResult<>(); // Result reused across searches
+    private final IndexedMinHeap heap = new IndexedMinHeap(0); // Heap reused across searches
+    private SearchMetrics metrics; // Records the cost of each search, or null
 
     /**
      * Constructs a new Dijkstra's algorithm search with the given graph.
@@ -11,14 +14,174 @@ public class DijkstraSearch<V> implements Search<V> {
         this.graph = graph;
     }
 
+    /**
+     * Constructs a new Dijkstra's algorithm search that runs directly on the given compact graph.
+     *
+     * @param compactGraph the compact graph to perform the search on
+     */
+    public DijkstraSearch(CompactGraph<V> compactGraph) {
+        this.compactGraph = compactGraph;
+    }
+
+    /**
+     * Points this search at another compact graph. The heap and the result keep their arrays, which only
+     * grow when the new graph has more vertices, so rebinding to a fresh snapshot allocates nothing.
+     *
+     * @param compactGraph the compact graph to perform the following searches on
+     */
+    void rebind(CompactGraph<V> compactGraph) {
+        this.compactGraph = compactGraph;
+    }
+
+    /**
+     * Records the cost of every following search in the given metrics. The counters are kept in local
+     * variables during the search and added to the metrics once at the end, so recording allocates nothing.
+     *
+     * @param metrics the metrics to record into, or null to stop recording
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Performs Dijkstra's algorithm starting from the given vertex.
+     * The visit order of the result is the order in which the vertices were settled.
+     *
+     * @param start the start vertex
+     * @return the result of the search
+     */
     @Override
-    public void search(Vertex<V> start) {
-        Map<Vertex<V>, Double> distances = graph.Dijkstra(start); // Perform Dijkstra's algorithm on the graph starting from the given vertex
+    public SearchResult<V> search(Vertex<V> start) {
+        CompactGraph<V> snapshot = snapshot(start.getId());
+        run(snapshot, snapshot.indexOf(start), -1, null, 0, Double.POSITIVE_INFINITY);
+        return result;
+    }
 
-        for (Map.Entry<Vertex<V>, Double> entry : distances.entrySet()) {
-            Vertex<V> vertex = entry.getKey(); // Get the vertex
-            double distance = entry.getValue(); // Get the distance
-            System.out.println("Vertex " + vertex.getData() + ": " + distance);
+    /**
+     * Performs Dijkstra's algorithm starting from the given vertex, settling only the vertices within the
+     * given distance. Neighbors farther than the radius are never pushed, so the work is proportional to the
+     * size of the ball around the start vertex rather than the whole graph. Vertices outside the radius keep
+     * an infinite distance in the result.
+     *
+     * @param start  the start vertex
+     * @param radius the largest distance to settle, inclusive
+     * @return the result of the search
+     */
+    public SearchResult<V> searchWithin(Vertex<V> start, double radius) {
+        if (!(radius >= 0.0))
+            throw new IllegalArgumentException("Radius must be non-negative, got " + radius);
+        CompactGraph<V> snapshot = snapshot(start.getId());
+        run(snapshot, snapshot.indexOf(start), -1, null, 0, radius);
+        return result;
+    }
+
+    /**
+     * Finds the shortest path between two vertices. The search stops as soon as the target is settled,
+     * so only the vertices closer to the source than the target are settled.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the result of the search
+     */
+    @Override
+    public SearchResult<V> shortestPath(Vertex<V> source, Vertex<V> target) {
+        CompactGraph<V> snapshot = snapshot(Math.max(source.getId(), target.getId()));
+        run(snapshot, snapshot.indexOf(source), snapshot.indexOf(target), null, 0, Double.POSITIVE_INFINITY);
+        return result;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from the source until every marked target is settled.
+     * Targets that cannot be reached make the search settle the whole component of the source.
+     *
+     * @param source      the source vertex
+     * @param isTarget    marks the target vertices by id
+     * @param targetCount the number of marked vertices
+     * @return the result of the search
+     */
+    SearchResult<V> searchUntilSettled(Vertex<V> source, boolean[] isTarget, int targetCount) {
+        CompactGraph<V> snapshot = snapshot(source.getId());
+        run(snapshot, snapshot.indexOf(source), -1, isTarget, targetCount, Double.POSITIVE_INFINITY);
+        return result;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm into the reused result.
+     *
+     * @param snapshot    the graph to search
+     * @param source      the start vertex id
+     * @param target      the vertex id to stop at once it is settled, or -1
+     * @param isTarget    marks vertices that all have to be settled before stopping, or null
+     * @param targetCount the number of marked vertices
+     * @param radius      the largest distance to settle, or infinity
+     */
+    private void run(CompactGraph<V> snapshot, int source, int target, boolean[] isTarget, int targetCount,
+                     double radius) {
+        GraphEvents.Dijkstra event = new GraphEvents.Dijkstra();
+        event.begin();
+        long startTime = metrics != null ? System.nanoTime() : 0L;
+        long relaxed = 0; // Edges scanned
+        int pushes = 1; // Heap insertions, starting with the source
+        int decreases = 0; // Heap decrease-key operations
+        int peakQueue = 1; // Largest heap size
+        result.reset(snapshot, source);
+        heap.clear();
+        heap.ensureCapacity(snapshot.vertexCount());
+
+        result.reach(source, 0.0, -1); // Set the distance of the start vertex to 0
+        heap.insert(source, 0.0); // Add the start vertex to the heap
+
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll(); // Retrieve and remove the vertex with the minimum distance
+            double distance = result.distance(vertex);
+            result.visit(vertex); // The vertex is settled
+            if (vertex == target)
+                break; // The distance to the target is final
+            if (isTarget != null && isTarget[vertex] && --targetCount == 0)
+                break; // The distances to all targets are final
+
+            int end = snapshot.offset(vertex + 1);
+            int edge = snapshot.offset(vertex);
+            relaxed += end - edge;
+            for (; edge < end; edge++) {
+                int neighbor = snapshot.target(edge);
+                double newDistance = distance + snapshot.weight(edge); // Calculate the new distance
+                if (newDistance > radius)
+                    continue; // The neighbor is outside the radius on this edge
+                double oldDistance = result.distance(neighbor);
+                if (newDistance < oldDistance) { // If the new distance is shorter than the current distance
+                    result.reach(neighbor, newDistance, vertex); // Update the distance and predecessor of the neighbor
+                    heap.insertOrDecrease(neighbor, newDistance); // Push the neighbor or move it up in the heap
+                    if (oldDistance != Double.POSITIVE_INFINITY) {
+                        decreases++; // A reached vertex is still in the heap, since settled ones cannot improve
+                    } else {
+                        pushes++;
+                        peakQueue = Math.max(peakQueue, heap.size());
+                    }
+                }
+            }
+        }
+        if (metrics != null)
+            metrics.record(System.nanoTime() - startTime, result.visitCount(), relaxed, pushes, result.visitCount(),
+                    decreases, peakQueue);
+        if (event.shouldCommit()) {
+            event.sourceId = source;
+            event.targetId = target;
+            event.settled = result.visitCount();
+            event.edgesScanned = relaxed;
+            event.decreaseKeys = decreases;
+            event.commit();
         }
     }
 }
\ No newline at end of file
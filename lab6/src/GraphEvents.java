@@ -0,0 +1,134 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+public class GraphEvents {
+    private GraphEvents() {
+    }
+
+    /**
+     * Emitted by every Dijkstra search, from DijkstraSearch and from the map-based WeightedGraph.Dijkstra.
+     * The event duration is the wall time of the search.
+     */
+    @Name("graph.Dijkstra")
+    @Label("Dijkstra Search")
+    @Category("Graph")
+    @Description("Single-source shortest path search")
+    @StackTrace(false)
+    public static class Dijkstra extends Event {
+        @Label("Source Vertex")
+        int sourceId; // Id of the start vertex
+
+        @Label("Target Vertex")
+        @Description("Vertex the search stops at, or -1 for a full search")
+        int targetId = -1; // Id of the vertex the search stops at, or -1
+
+        @Label("Vertices Settled")
+        int settled; // Number of vertices settled
+
+        @Label("Edges Scanned")
+        long edgesScanned; // Number of edges scanned
+
+        @Label("Decrease Keys")
+        long decreaseKeys; // Number of heap decrease-key operations
+    }
+
+    /**
+     * Emitted by every breadth-first search, from BreadthFirstSearch and from the map-based WeightedGraph.BFS.
+     * The event duration is the wall time of the search.
+     */
+    @Name("graph.BFS")
+    @Label("Breadth-First Search")
+    @Category("Graph")
+    @Description("Breadth-first traversal from one vertex")
+    @StackTrace(false)
+    public static class BreadthFirst extends Event {
+        @Label("Source Vertex")
+        int sourceId; // Id of the start vertex
+
+        @Label("Mode")
+        String mode; // How the levels were expanded
+
+        @Label("Vertices Settled")
+        int settled; // Number of vertices visited
+
+        @Label("Edges Scanned")
+        long edgesScanned; // Number of edges scanned
+    }
+
+    /**
+     * Emitted when a whole graph is loaded from a file, by GraphImporter and GraphFile.map.
+     * The event duration is the time spent reading and building the graph.
+     */
+    @Name("graph.BulkLoad")
+    @Label("Graph Bulk Load")
+    @Category("Graph")
+    @Description("Graph read from a file in one operation")
+    public static class BulkLoad extends Event {
+        @Label("File")
+        String file; // Path of the file
+
+        @Label("Format")
+        String format; // Format of the file
+
+        @Label("File Size")
+        @DataAmount
+        long fileBytes; // Size of the file
+
+        @Label("Vertices")
+        int vertexCount; // Number of vertices loaded
+
+        @Label("Edges")
+        @Description("Edges stored in the file, one per line for edge lists and one per direction for mapped files")
+        long edgeCount; // Number of edges stored in the file
+    }
+
+    /**
+     * Emitted when a weighted graph builds a compact snapshot. The event duration is the build time.
+     */
+    @Name("graph.Snapshot")
+    @Label("Graph Snapshot")
+    @Category("Graph")
+    @Description("Compact snapshot built from a weighted graph")
+    @StackTrace(false)
+    public static class Snapshot extends Event {
+        @Label("Version")
+        long version; // Version of the weighted graph
+
+        @Label("Vertices")
+        int vertexCount; // Number of vertices in the snapshot
+
+        @Label("Edges")
+        long edgeCount; // Number of directed edges in the snapshot
+
+        @Label("Reused Vertices")
+        @Description("Vertices whose edges were copied from the previous snapshot")
+        int reusedVertexCount; // Number of vertices copied from the previous snapshot
+
+        @Label("Size")
+        @DataAmount
+        long estimatedBytes; // Estimated heap size of the snapshot
+    }
+
+    /**
+     * Emitted when a batch of edges is added to a weighted graph at once. The event duration is the time
+     * spent adding the batch.
+     */
+    @Name("graph.Mutation")
+    @Label("Graph Bulk Mutation")
+    @Category("Graph")
+    @Description("Batch of edges added to a weighted graph")
+    public static class Mutation extends Event {
+        @Label("Operation")
+        String operation; // Name of the mutating method
+
+        @Label("Edges")
+        int edgeCount; // Number of undirected edges in the batch
+
+        @Label("Version")
+        long version; // Version of the weighted graph after the batch
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+public class GraphFile {
+    private static final int MAGIC = 0x31525343; // "CSR1" in little-endian order, marks a graph file
+    private static final int FORMAT_VERSION = 1; // Layout version of the file
+    private static final int HEADER_BYTES = 32; // Size of the header, keeping the sections 8-byte aligned
+    private static final int WRITE_BUFFER_BYTES = 1 << 20; // Size of the buffer used to write the file
+
+    /**
+     * Converts vertex data to bytes and back, to store it in the payload table of a graph file.
+     */
+    public interface Codec<V> {
+        /**
+         * Converts the data of a vertex to bytes.
+         *
+         * @param data the vertex data
+         * @return the encoded data
+         */
+        byte[] encode(V data);
+
+        /**
+         * Reads the data of a vertex back from its bytes.
+         *
+         * @param bytes the encoded data, from position 0 to the limit, in little-endian order like the rest of the file
+         * @return the vertex data
+         */
+        V decode(ByteBuffer bytes);
+    }
+
+    /**
+     * Codec that stores strings as UTF-8.
+     */
+    public static final Codec<String> STRINGS = new Codec<String>() {
+        @Override
+        public byte[] encode(String data) {
+            return data.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer bytes) {
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+    };
+
+    /**
+     * Codec that stores integers as four little-endian bytes.
+     */
+    public static final Codec<Integer> INTEGERS = new Codec<Integer>() {
+        @Override
+        public byte[] encode(Integer data) {
+            return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(data).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer bytes) {
+            return bytes.getInt(0);
+        }
+    };
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes a compact graph to a binary file. All numbers are little-endian. The file holds, each section
+     * starting at a multiple of 8 bytes:
+     * a header with the magic number, the format version, the vertex count, the edge count and the size of
+     * the payload data; the vertexCount + 1 int edge offsets; the int edge targets; the double edge weights;
+     * the vertexCount + 1 long positions of each vertex payload; and the encoded payloads themselves.
+     *
+     * @param graph the graph to write
+     * @param file  the file to write
+     * @param codec the codec for the vertex data
+     * @param <V>   the type of the vertex data
+     * @throws IOException if the file cannot be written
+     */
+    public static <V> void write(CompactGraph<V> graph, Path file, Codec<V> codec) throws IOException {
+        int vertexCount = graph.vertexCount();
+        int edgeCount = graph.edgeCount();
+        byte[][] payloads = new byte[vertexCount][];
+        long payloadBytes = 0;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            payloads[vertex] = codec.encode(graph.getVertex(vertex).getData());
+            payloadBytes += payloads[vertex].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(vertexCount).putInt(edgeCount);
+            buffer.putLong(payloadBytes).putLong(0L); // The last field is reserved
+
+            for (int vertex = 0; vertex <= vertexCount; vertex++) {
+                reserve(channel, buffer, 4).putInt(graph.offset(vertex));
+            }
+            pad(channel, buffer, 4L * (vertexCount + 1));
+            for (int edge = 0; edge < edgeCount; edge++) {
+                reserve(channel, buffer, 4).putInt(graph.target(edge));
+            }
+            pad(channel, buffer, 4L * edgeCount);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                reserve(channel, buffer, 8).putDouble(graph.weight(edge));
+            }
+
+            long position = 0;
+            for (int vertex = 0; vertex < vertexCount; vertex++) {
+                reserve(channel, buffer, 8).putLong(position); // Start of each payload within the payload data
+                position += payloads[vertex].length;
+            }
+            reserve(channel, buffer, 8).putLong(position);
+            for (byte[] payload : payloads) {
+                for (int i = 0; i < payload.length; ) {
+                    int length = Math.min(payload.length - i, buffer.capacity());
+                    reserve(channel, buffer, length).put(payload, i, length);
+                    i += length;
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Maps a graph file into memory. Nothing is copied to the heap: the returned graph reads its edges
+     * straight from the mapped file, and decodes the data of a vertex the first time the vertex is asked for.
+     * Each section is mapped separately and must be smaller than 2 GB, which allows up to about 268 million
+     * directed edges. The edge offsets, targets and weights and the payload positions are checked once while mapping,
+     * so that a corrupt file is rejected here rather than failing later in a search.
+     *
+     * @param file  the file to map
+     * @param codec the codec for the vertex data
+     * @param <V>   the type of the vertex data
+     * @return the mapped graph
+     * @throws IOException if the file cannot be read or is not a valid graph file
+     */
+    public static <V> MappedCompactGraph<V> map(Path file, Codec<V> codec) throws IOException {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES)
+                throw new IOException(file + " is not a graph file");
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a graph file");
+            if (header.getInt(4) != FORMAT_VERSION)
+                throw new IOException(file + " has unsupported format version " + header.getInt(4));
+            int vertexCount = header.getInt(8);
+            int edgeCount = header.getInt(12);
+            long payloadBytes = header.getLong(16);
+
+            long offsetsStart = HEADER_BYTES;
+            long targetsStart = align(offsetsStart + 4L * (vertexCount + 1));
+            long weightsStart = align(targetsStart + 4L * edgeCount);
+            long indexStart = weightsStart + 8L * edgeCount;
+            long payloadStart = indexStart + 8L * (vertexCount + 1);
+            if (vertexCount < 0 || edgeCount < 0 || channel.size() != payloadStart + payloadBytes)
+                throw new IOException(file + " is truncated or corrupt");
+
+            IntBuffer offsets = map(channel, offsetsStart, 4L * (vertexCount + 1)).asIntBuffer();
+            IntBuffer targets = map(channel, targetsStart, 4L * edgeCount).asIntBuffer();
+            DoubleBuffer weights = map(channel, weightsStart, 8L * edgeCount).asDoubleBuffer();
+            LongBuffer payloadIndex = map(channel, indexStart, 8L * (vertexCount + 1)).asLongBuffer();
+            validate(file, vertexCount, edgeCount, payloadBytes, offsets, targets, weights, payloadIndex);
+            MappedCompactGraph<V> graph = new MappedCompactGraph<>(vertexCount, edgeCount, offsets, targets,
+                    weights, payloadIndex,
+                    map(channel, payloadStart, payloadBytes), codec, channel.size());
+            if (event.shouldCommit()) {
+                event.file = file.toString();
+                event.format = "MAPPED";
+                event.fileBytes = channel.size();
+                event.vertexCount = vertexCount;
+                event.edgeCount = edgeCount;
+                event.commit();
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * Checks that the mapped sections of a graph file describe a valid graph: the edge offsets run from 0
+     * to the edge count without decreasing, every edge target is a vertex, every weight is finite and not
+     * negative, and the payload positions run from 0 to the payload size without decreasing.
+     *
+     * @param file         the file, for the error message
+     * @param vertexCount  the number of vertices
+     * @param edgeCount    the number of directed edges
+     * @param payloadBytes the size of the payload data
+     * @param offsets      the mapped edge offsets
+     * @param targets      the mapped edge targets
+     * @param weights      the mapped edge weights
+     * @param payloadIndex the mapped start of each vertex payload
+     * @throws IOException if a section is inconsistent
+     */
+    private static void validate(Path file, int vertexCount, int edgeCount, long payloadBytes, IntBuffer offsets,
+                                 IntBuffer targets, DoubleBuffer weights, LongBuffer payloadIndex)
+            throws IOException {
+        if (offsets.get(0) != 0 || offsets.get(vertexCount) != edgeCount)
+            throw new IOException(file + " has inconsistent edge offsets");
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (offsets.get(vertex) > offsets.get(vertex + 1))
+                throw new IOException(file + " has decreasing edge offsets at vertex " + vertex);
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int target = targets.get(edge);
+            if (target < 0 || target >= vertexCount)
+                throw new IOException(file + " has edge " + edge + " to vertex " + target + " of " + vertexCount);
+            if (!CompactGraph.isValidWeight(weights.get(edge)))
+                throw new IOException(file + " has edge " + edge + " with weight " + weights.get(edge));
+        }
+        if (payloadIndex.get(0) != 0 || payloadIndex.get(vertexCount) != payloadBytes)
+            throw new IOException(file + " has inconsistent payload positions");
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            if (payloadIndex.get(vertex) > payloadIndex.get(vertex + 1))
+                throw new IOException(file + " has decreasing payload positions at vertex " + vertex);
+        }
+    }
+
+    /**
+     * Maps a read-only section of the file.
+     *
+     * @param channel  the file channel
+     * @param position the start of the section
+     * @param size     the size of the section in bytes
+     * @return the mapped section in little-endian order
+     * @throws IOException if the section cannot be mapped
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Graph file section of " + size + " bytes exceeds the 2 GB mapping limit");
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Rounds a file position up to the next multiple of 8.
+     *
+     * @param position the file position
+     * @return the aligned position
+     */
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Makes room for the given number of bytes in the write buffer, flushing it if needed.
+     *
+     * @param channel the file channel
+     * @param buffer  the write buffer
+     * @param bytes   the number of bytes about to be written
+     * @return the write buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static ByteBuffer reserve(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush(channel, buffer);
+        return buffer;
+    }
+
+    /**
+     * Writes zero bytes after a section so that the next one starts at a multiple of 8.
+     *
+     * @param channel      the file channel
+     * @param buffer       the write buffer
+     * @param sectionBytes the size of the section just written
+     * @throws IOException if the file cannot be written
+     */
+    private static void pad(FileChannel channel, ByteBuffer buffer, long sectionBytes) throws IOException {
+        int padding = (int) (align(sectionBytes) - sectionBytes);
+        reserve(channel, buffer, padding);
+        for (int i = 0; i < padding; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Writes the contents of the write buffer to the file and empties it.
+     *
+     * @param channel the file channel
+     * @param buffer  the write buffer
+     * @throws IOException if the file cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
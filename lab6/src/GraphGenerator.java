@@ -0,0 +1,506 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+public class GraphGenerator {
+    private static final int BLOCK_SIZE = 1 << 16; // Edges or vertices generated by one task with its own random stream
+    private static final double RMAT_A = 0.57; // Graph500 probability of the top-left quadrant
+    private static final double RMAT_B = 0.19; // Graph500 probability of the top-right quadrant
+    private static final double RMAT_C = 0.19; // Graph500 probability of the bottom-left quadrant
+
+    /**
+     * A position in the plane, used as the vertex data of spatial graphs.
+     */
+    public static class Point {
+        private final double x; // Horizontal coordinate
+        private final double y; // Vertical coordinate
+
+        /**
+         * Constructs a new point.
+         *
+         * @param x the horizontal coordinate
+         * @param y the vertical coordinate
+         */
+        public Point(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Returns the horizontal coordinate.
+         *
+         * @return the horizontal coordinate
+         */
+        public double getX() {
+            return x;
+        }
+
+        /**
+         * Returns the vertical coordinate.
+         *
+         * @return the vertical coordinate
+         */
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * Returns the straight-line distance to another point.
+         *
+         * @param other the other point
+         * @return the Euclidean distance
+         */
+        public double distance(Point other) {
+            return Math.hypot(x - other.x, y - other.y);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + x + ", " + y + ")";
+        }
+    }
+
+    /**
+     * Straight-line distance between points, a lower bound on the path length in the spatial graphs
+     * generated here since no edge is shorter than the distance between its ends.
+     */
+    public static final Heuristic<Point> EUCLIDEAN = Point::distance;
+
+    private final long seed; // Seed every random stream is derived from
+    private final double minWeight; // Smallest weight of a generated edge
+    private final double maxWeight; // Largest weight of a generated edge, exclusive
+    private final ForkJoinPool pool; // Pool that generates the blocks
+
+    /**
+     * Constructs a new generator with weights between 1 and 100, running on the common pool.
+     *
+     * @param seed the seed, the same seed always generates the same graphs
+     */
+    public GraphGenerator(long seed) {
+        this(seed, 1.0, 100.0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new generator. Graphs without coordinates get weights drawn uniformly from the range.
+     * The work is cut into blocks that each draw from their own random stream, split from the seed in block
+     * order, so the generated graph does not depend on the number of threads.
+     *
+     * @param seed      the seed, the same seed always generates the same graphs
+     * @param minWeight the smallest edge weight
+     * @param maxWeight the largest edge weight, exclusive
+     * @param pool      the pool that generates the blocks
+     */
+    public GraphGenerator(long seed, double minWeight, double maxWeight, ForkJoinPool pool) {
+        if (!(minWeight >= 0.0) || !(maxWeight > minWeight))
+            throw new IllegalArgumentException("Weights must satisfy 0 <= min < max, got " + minWeight + " and " + maxWeight);
+        this.seed = seed;
+        this.minWeight = minWeight;
+        this.maxWeight = maxWeight;
+        this.pool = pool;
+    }
+
+    /**
+     * Generates a road-like grid. Each vertex sits near its lattice position, moved by up to 0.3 in each
+     * direction, and is joined to its right and lower neighbors. Each edge is left out with the given
+     * probability, and its weight is the distance between its ends times a random detour factor between 1 and 2.
+     *
+     * @param width   the number of columns
+     * @param height  the number of rows
+     * @param removal the probability of leaving out each edge
+     * @return the grid graph
+     */
+    public CompactGraph<Point> grid(int width, int height, double removal) {
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Grid size " + width + "x" + height + " is out of range");
+        int vertexCount = width * height;
+        Point[] points = new Point[vertexCount];
+        SplittableRandom passes = new SplittableRandom(seed); // Each pass gets its own stream, so the edges do not replay the jitter
+        generate(passes.split(), blocks(vertexCount), (block, random, edges) -> {
+            for (int vertex = block * BLOCK_SIZE; vertex < Math.min(vertexCount, (block + 1) * BLOCK_SIZE); vertex++) {
+                points[vertex] = new Point(vertex % width + 0.6 * random.nextDouble() - 0.3,
+                        vertex / width + 0.6 * random.nextDouble() - 0.3);
+            }
+        });
+        EdgeBuffer edges = generate(passes.split(), blocks(vertexCount), (block, random, out) -> {
+            for (int vertex = block * BLOCK_SIZE; vertex < Math.min(vertexCount, (block + 1) * BLOCK_SIZE); vertex++) {
+                if (vertex % width + 1 < width && random.nextDouble() >= removal)
+                    out.add(vertex, vertex + 1, points[vertex].distance(points[vertex + 1]) * (1 + random.nextDouble()));
+                if (vertex + width < vertexCount && random.nextDouble() >= removal)
+                    out.add(vertex, vertex + width, points[vertex].distance(points[vertex + width]) * (1 + random.nextDouble()));
+            }
+        });
+        return edges.build(Arrays.asList(points));
+    }
+
+    /**
+     * Generates an Erdos-Renyi graph with the given number of edges between uniformly chosen pairs of distinct
+     * vertices. Pairs drawn twice are merged, so the graph can have slightly fewer edges.
+     *
+     * @param vertexCount the number of vertices, at least 2
+     * @param edgeCount   the number of edges to draw
+     * @return the random graph
+     */
+    public CompactGraph<Integer> erdosRenyi(int vertexCount, int edgeCount) {
+        if (vertexCount < 2 || edgeCount < 0)
+            throw new IllegalArgumentException("Need at least 2 vertices and no negative edge count");
+        EdgeBuffer edges = generate(new SplittableRandom(seed), blocks(edgeCount), (block, random, out) -> {
+            for (int i = block * BLOCK_SIZE; i < Math.min(edgeCount, (block + 1) * BLOCK_SIZE); i++) {
+                int source = random.nextInt(vertexCount);
+                int target = random.nextInt(vertexCount - 1);
+                out.add(source, target >= source ? target + 1 : target, weight(random)); // Never a loop
+            }
+        });
+        return edges.build(numbered(vertexCount));
+    }
+
+    /**
+     * Generates a Barabasi-Albert graph. Starting from a clique of edgesPerVertex + 1 vertices, each new vertex
+     * joins edgesPerVertex distinct existing vertices, picked in proportion to their degree. Each vertex
+     * depends on all earlier ones, so this generator runs on a single thread.
+     *
+     * @param vertexCount    the number of vertices
+     * @param edgesPerVertex the number of edges added with each vertex
+     * @return the scale-free graph
+     */
+    public CompactGraph<Integer> barabasiAlbert(int vertexCount, int edgesPerVertex) {
+        if (edgesPerVertex < 1 || vertexCount <= edgesPerVertex)
+            throw new IllegalArgumentException("Need more vertices than edges per vertex, and at least one edge per vertex");
+        long endTotal = 2 * ((long) edgesPerVertex * (edgesPerVertex + 1) / 2
+                + (long) (vertexCount - edgesPerVertex - 1) * edgesPerVertex); // Both ends of every edge
+        if (endTotal > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Barabasi-Albert graph with " + vertexCount + " vertices and "
+                    + edgesPerVertex + " edges per vertex is too large");
+        SplittableRandom random = new SplittableRandom(seed);
+        EdgeBuffer edges = new EdgeBuffer();
+        int[] ends = new int[(int) endTotal]; // Both ends of every edge so far
+        int endCount = 0;
+        for (int source = 0; source <= edgesPerVertex; source++) {
+            for (int target = 0; target < source; target++) {
+                edges.add(source, target, weight(random));
+                ends[endCount++] = source;
+                ends[endCount++] = target;
+            }
+        }
+        int[] chosen = new int[edgesPerVertex];
+        for (int source = edgesPerVertex + 1; source < vertexCount; source++) {
+            int existingEnds = endCount; // Only vertices from before this one can be picked
+            for (int i = 0; i < edgesPerVertex; i++) {
+                int target;
+                do {
+                    target = ends[random.nextInt(existingEnds)]; // An end of a random edge, so in proportion to degree
+                } while (contains(chosen, i, target));
+                chosen[i] = target;
+                edges.add(source, target, weight(random));
+                ends[endCount++] = source;
+                ends[endCount++] = target;
+            }
+        }
+        return edges.build(numbered(vertexCount));
+    }
+
+    /**
+     * Generates an R-MAT graph with the Graph500 Kronecker parameters. Each edge picks one quadrant of the
+     * adjacency matrix per bit of the vertex ids, and the ids are then shuffled so that high degree vertices
+     * are not clustered at low ids. Loops are dropped and repeated pairs are merged.
+     *
+     * @param scale      the base 2 logarithm of the number of vertices
+     * @param edgeFactor the number of edges drawn per vertex
+     * @return the R-MAT graph
+     */
+    public CompactGraph<Integer> rmat(int scale, int edgeFactor) {
+        if (scale < 1 || scale > 30 || edgeFactor < 1 || ((long) edgeFactor << scale) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("R-MAT scale " + scale + " and edge factor " + edgeFactor + " are out of range");
+        int vertexCount = 1 << scale;
+        int edgeCount = edgeFactor << scale;
+        int[] permutation = new int[vertexCount];
+        SplittableRandom passes = new SplittableRandom(seed);
+        SplittableRandom shuffle = passes.split(); // Independent of the streams of the edge blocks
+        for (int i = 0; i < vertexCount; i++) {
+            int j = shuffle.nextInt(i + 1); // Fisher-Yates shuffle built from the front
+            permutation[i] = permutation[j];
+            permutation[j] = i;
+        }
+        EdgeBuffer edges = generate(passes.split(), blocks(edgeCount), (block, random, out) -> {
+            for (int i = block * BLOCK_SIZE; i < Math.min(edgeCount, (block + 1) * BLOCK_SIZE); i++) {
+                int source = 0;
+                int target = 0;
+                for (int bit = 0; bit < scale; bit++) {
+                    double quadrant = random.nextDouble();
+                    if (quadrant >= RMAT_A + RMAT_B + RMAT_C) {
+                        source |= 1 << bit;
+                        target |= 1 << bit;
+                    } else if (quadrant >= RMAT_A + RMAT_B) {
+                        source |= 1 << bit;
+                    } else if (quadrant >= RMAT_A) {
+                        target |= 1 << bit;
+                    }
+                }
+                if (source != target)
+                    out.add(permutation[source], permutation[target], weight(random));
+            }
+        });
+        return edges.build(numbered(vertexCount));
+    }
+
+    /**
+     * Generates a random geometric graph: vertices are spread uniformly over the unit square, and every pair
+     * closer than the radius is joined by an edge weighted with their distance. Vertices are numbered by
+     * their cell in a grid as wide as the radius, so that neighbors get nearby ids, and each vertex only
+     * compares itself with the vertices of its own and the surrounding cells.
+     *
+     * @param vertexCount the number of vertices
+     * @param radius      the largest distance between joined vertices
+     * @return the geometric graph
+     */
+    public CompactGraph<Point> randomGeometric(int vertexCount, double radius) {
+        if (vertexCount < 1 || !(radius > 0.0))
+            throw new IllegalArgumentException("Need at least one vertex and a positive radius");
+        Point[] scattered = new Point[vertexCount];
+        generate(new SplittableRandom(seed), blocks(vertexCount), (block, random, out) -> {
+            for (int i = block * BLOCK_SIZE; i < Math.min(vertexCount, (block + 1) * BLOCK_SIZE); i++) {
+                scattered[i] = new Point(random.nextDouble(), random.nextDouble());
+            }
+        });
+
+        int side = (int) Math.max(1, Math.min(Math.floor(1.0 / radius), Math.sqrt(vertexCount) + 1)); // Cells per side
+        int[] cellStart = new int[side * side + 1]; // Counting sort of the points by cell
+        for (Point point : scattered) {
+            cellStart[cell(point, side) + 1]++;
+        }
+        for (int cell = 0; cell < side * side; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        Point[] points = new Point[vertexCount];
+        int[] next = Arrays.copyOf(cellStart, side * side);
+        for (Point point : scattered) {
+            points[next[cell(point, side)]++] = point;
+        }
+
+        EdgeBuffer edges = generate(new SplittableRandom(seed), blocks(vertexCount), (block, random, out) -> {
+            for (int vertex = block * BLOCK_SIZE; vertex < Math.min(vertexCount, (block + 1) * BLOCK_SIZE); vertex++) {
+                int cell = cell(points[vertex], side);
+                int column = cell % side;
+                int row = cell / side;
+                for (int neighborRow = Math.max(0, row - 1); neighborRow <= Math.min(side - 1, row + 1); neighborRow++) {
+                    for (int neighborColumn = Math.max(0, column - 1); neighborColumn <= Math.min(side - 1, column + 1); neighborColumn++) {
+                        int neighborCell = neighborRow * side + neighborColumn;
+                        for (int other = Math.max(vertex + 1, cellStart[neighborCell]); other < cellStart[neighborCell + 1]; other++) {
+                            double distance = points[vertex].distance(points[other]);
+                            if (distance <= radius) // Each pair is only looked at from its lower id
+                                out.add(vertex, other, distance);
+                        }
+                    }
+                }
+            }
+        });
+        return edges.build(Arrays.asList(points));
+    }
+
+    /**
+     * Returns the cell of a point in a grid over the unit square.
+     *
+     * @param point the point
+     * @param side  the number of cells per side
+     * @return the cell index, row by row
+     */
+    private static int cell(Point point, int side) {
+        int column = Math.min(side - 1, (int) (point.getX() * side));
+        int row = Math.min(side - 1, (int) (point.getY() * side));
+        return row * side + column;
+    }
+
+    /**
+     * Draws an edge weight uniformly from the weight range.
+     *
+     * @param random the random stream
+     * @return the weight
+     */
+    private double weight(SplittableRandom random) {
+        return minWeight + (maxWeight - minWeight) * random.nextDouble();
+    }
+
+    /**
+     * Checks if a value is among the first entries of an array.
+     *
+     * @param values the array
+     * @param count  the number of entries to check
+     * @param value  the value
+     * @return true if the value is found, false otherwise
+     */
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of blocks needed for the given number of items.
+     *
+     * @param items the number of vertices or edges
+     * @return the number of blocks
+     */
+    private static int blocks(int items) {
+        return (items + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Creates vertices holding their own number.
+     *
+     * @param vertexCount the number of vertices
+     * @return the vertex data by id
+     */
+    private static List<Integer> numbered(int vertexCount) {
+        List<Integer> numbers = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            numbers.add(i);
+        }
+        return numbers;
+    }
+
+    /**
+     * Runs every block on the pool and joins their edges in block order. A generator that draws in several
+     * passes gives each pass its own root split from the seed, since two roots made from the same seed
+     * would hand the blocks of both passes the same streams.
+     *
+     * @param root       the stream the block streams are split from
+     * @param blockCount the number of blocks
+     * @param generator  generates the edges of one block
+     * @return the edges of all blocks
+     */
+    private EdgeBuffer generate(SplittableRandom root, int blockCount, BlockGenerator generator) {
+        EdgeBuffer[] buffers = new EdgeBuffer[blockCount];
+        SplittableRandom[] randoms = new SplittableRandom[blockCount];
+        for (int block = 0; block < blockCount; block++) {
+            randoms[block] = root.split(); // Split in block order so every block gets the same stream on any pool
+        }
+        pool.invoke(new BlockTask(generator, randoms, buffers, 0, blockCount));
+        EdgeBuffer edges = new EdgeBuffer();
+        for (EdgeBuffer buffer : buffers) {
+            edges.addAll(buffer);
+        }
+        return edges;
+    }
+
+    /**
+     * Generates the vertices or edges of one block.
+     */
+    private interface BlockGenerator {
+        /**
+         * Generates one block.
+         *
+         * @param block  the block number
+         * @param random the random stream of the block
+         * @param edges  receives the edges of the block
+         */
+        void generate(int block, SplittableRandom random, EdgeBuffer edges);
+    }
+
+    /**
+     * Generates a range of blocks, splitting the range until it holds a single block.
+     */
+    private static class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final BlockGenerator generator; // Generates each block
+        private final SplittableRandom[] randoms; // Random stream of each block
+        private final EdgeBuffer[] buffers; // Edges of each block
+        private final int from; // First block of the range
+        private final int to; // End of the range, exclusive
+
+        /**
+         * Constructs a new task for the given range of blocks.
+         *
+         * @param generator generates each block
+         * @param randoms   the random stream of each block
+         * @param buffers   receives the edges of each block
+         * @param from      the first block of the range
+         * @param to        the end of the range, exclusive
+         */
+        BlockTask(BlockGenerator generator, SplittableRandom[] randoms, EdgeBuffer[] buffers, int from, int to) {
+            this.generator = generator;
+            this.randoms = randoms;
+            this.buffers = buffers;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockTask(generator, randoms, buffers, from, middle),
+                        new BlockTask(generator, randoms, buffers, middle, to));
+            } else if (to > from) {
+                buffers[from] = new EdgeBuffer();
+                generator.generate(from, randoms[from], buffers[from]);
+            }
+        }
+    }
+
+    /**
+     * Growable arrays of edges.
+     */
+    private static class EdgeBuffer {
+        private int[] sources = new int[16]; // Source vertex id of each edge
+        private int[] targets = new int[16]; // Target vertex id of each edge
+        private double[] weights = new double[16]; // Weight of each edge
+        private int count; // Number of edges
+
+        /**
+         * Appends an edge.
+         *
+         * @param source the source vertex id
+         * @param target the target vertex id
+         * @param weight the weight
+         */
+        void add(int source, int target, double weight) {
+            ensureCapacity(count + 1);
+            sources[count] = source;
+            targets[count] = target;
+            weights[count] = weight;
+            count++;
+        }
+
+        /**
+         * Appends all edges of another buffer.
+         *
+         * @param other the other buffer
+         */
+        void addAll(EdgeBuffer other) {
+            ensureCapacity(count + other.count);
+            System.arraycopy(other.sources, 0, sources, count, other.count);
+            System.arraycopy(other.targets, 0, targets, count, other.count);
+            System.arraycopy(other.weights, 0, weights, count, other.count);
+            count += other.count;
+        }
+
+        /**
+         * Grows the arrays to hold at least the given number of edges.
+         *
+         * @param capacity the required number of edges
+         */
+        private void ensureCapacity(int capacity) {
+            if (capacity <= sources.length)
+                return;
+            int grown = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, 2L * sources.length));
+            sources = Arrays.copyOf(sources, grown);
+            targets = Arrays.copyOf(targets, grown);
+            weights = Arrays.copyOf(weights, grown);
+        }
+
+        /**
+         * Builds a compact graph from the edges with new vertices holding the given data.
+         *
+         * @param data the vertex data by id
+         * @param <V>  the type of the vertex data
+         * @return the compact graph
+         */
+        <V> CompactGraph<V> build(List<V> data) {
+            List<Vertex<V>> vertices = new ArrayList<>(data.size());
+            for (V item : data) {
+                vertices.add(new Vertex<>(item));
+            }
+            return CompactGraph.fromEdges(vertices, sources, targets, weights, count);
+        }
+    }
+}
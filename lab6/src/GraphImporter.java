@@ -0,0 +1,787 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+public class GraphImporter {
+    /**
+     * Text formats the importer can read.
+     */
+    public enum Format {
+        /**
+         * One edge per line as "source,target" or "source,target,weight". Keys are any text without commas.
+         */
+        CSV,
+        /**
+         * One edge per line as "source target" or "source target weight", separated by spaces or tabs.
+         */
+        WHITESPACE,
+        /**
+         * DIMACS shortest path format: "p sp n m" gives the vertex count, "a u v w" adds an arc between
+         * the vertices numbered u and v from 1, and lines starting with "c" are comments.
+         */
+        DIMACS,
+        /**
+         * METIS graph format: a header "n m [fmt [ncon]]", then one line per vertex listing its neighbors
+         * numbered from 1, each followed by its weight if fmt ends in 1. Lines starting with "%" are comments.
+         */
+        METIS
+    }
+
+    private static final int MIN_CHUNK_BYTES = 1 << 20; // Smallest chunk worth parsing on its own thread
+    private static final int MAX_CHUNK_BYTES = 1 << 28; // Largest chunk, well below the 2 GB mapping limit
+
+    private final ForkJoinPool pool; // Pool that parses the chunks
+
+    /**
+     * Constructs a new importer that parses on the common pool.
+     */
+    public GraphImporter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new importer that parses on the given pool.
+     *
+     * @param pool the pool that parses the chunks
+     */
+    public GraphImporter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reads a graph file into a compact graph without building vertex maps. Vertices hold their key from
+     * the file, or their number for DIMACS and METIS, and get ids in order of first appearance.
+     * Each edge is stored in both directions, and a repeated pair keeps the weight that comes last.
+     * Edges without a weight get weight 1.
+     *
+     * @param file   the file to read
+     * @param format the format of the file
+     * @return the compact graph
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public CompactGraph<String> readCompact(Path file, Format format) throws IOException {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        EdgeList edges = parse(file, format);
+        CompactGraph<String> graph = CompactGraph.fromEdges(edges.vertices, edges.sources, edges.targets,
+                edges.weights, edges.count);
+        commit(event, file, format, graph.vertexCount(), edges.count);
+        return graph;
+    }
+
+    /**
+     * Reads a graph file into a new weighted graph, adding the edges in bulk by vertex id.
+     * Vertices and edges are the same as those of readCompact.
+     *
+     * @param file   the file to read
+     * @param format the format of the file
+     * @return the weighted graph
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    public WeightedGraph<String> read(Path file, Format format) throws IOException {
+        GraphEvents.BulkLoad event = new GraphEvents.BulkLoad();
+        event.begin();
+        EdgeList edges = parse(file, format);
+        WeightedGraph<String> graph = new WeightedGraph<>();
+        for (Vertex<String> vertex : edges.vertices) {
+            graph.addVertex(vertex);
+        }
+        graph.addEdges(edges.sources, edges.targets, edges.weights, edges.count);
+        commit(event, file, format, edges.vertices.size(), edges.count);
+        return graph;
+    }
+
+    /**
+     * Fills in and commits a bulk load event if the flight recorder wants it.
+     *
+     * @param event       the event started before reading
+     * @param file        the file that was read
+     * @param format      the format of the file
+     * @param vertexCount the number of vertices loaded
+     * @param edgeCount   the number of edges read from the file
+     * @throws IOException if the file size cannot be read
+     */
+    private static void commit(GraphEvents.BulkLoad event, Path file, Format format, int vertexCount, long edgeCount)
+            throws IOException {
+        if (!event.shouldCommit())
+            return;
+        event.file = file.toString();
+        event.format = format.name();
+        event.fileBytes = Files.size(file);
+        event.vertexCount = vertexCount;
+        event.edgeCount = edgeCount;
+        event.commit();
+    }
+
+    /**
+     * Parses a graph file into an edge list. The file is cut into chunks at line boundaries, and each chunk
+     * is mapped and parsed on its own thread. Keys are first given ids local to their chunk; the chunks are
+     * then merged in file order so that the final ids do not depend on how the work was scheduled.
+     *
+     * @param file   the file to read
+     * @param format the format of the file
+     * @return the edges of the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    private EdgeList parse(Path file, Format format) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        int[] header = null; // Vertex count, edge weight flag, vertex weight count and vertex size flag of METIS
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            if (format == Format.METIS) {
+                long headerStart = findMetisHeader(channel, file);
+                start = lineStart(channel, headerStart + 1);
+                header = parseMetisHeader(channel, file, headerStart, start);
+            }
+            long chunkBytes = Math.max(MIN_CHUNK_BYTES,
+                    Math.min(MAX_CHUNK_BYTES, (size - start) / (4L * pool.getParallelism()) + 1));
+            while (start < size) {
+                long end = lineStart(channel, Math.min(size, start + chunkBytes));
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                chunks.add(new Chunk(file, format, header, bytes, start));
+                start = end;
+            }
+            forEachChunk(chunks, Chunk::parse); // The mappings stay valid after the channel is closed
+        }
+
+        EdgeList edges = new EdgeList();
+        int[] edgeBase = new int[chunks.size() + 1]; // Position of each chunk's edges in the merged arrays
+        for (int i = 0; i < chunks.size(); i++) {
+            long total = (long) edgeBase[i] + chunks.get(i).count;
+            if (total > Integer.MAX_VALUE)
+                throw new IOException(file + " has more edges than a compact graph can hold");
+            edgeBase[i + 1] = (int) total;
+        }
+        edges.count = edgeBase[chunks.size()];
+        edges.sources = new int[edges.count];
+        edges.targets = new int[edges.count];
+        edges.weights = new double[edges.count];
+
+        if (format == Format.CSV || format == Format.WHITESPACE) {
+            Map<String, Integer> ids = new HashMap<>(); // Global id of each key
+            for (Chunk chunk : chunks) {
+                chunk.remap = new int[chunk.keys.size()];
+                for (int local = 0; local < chunk.keys.size(); local++) {
+                    String key = chunk.keys.get(local);
+                    Integer id = ids.get(key);
+                    if (id == null) { // First appearance of the key in the file
+                        id = edges.vertices.size();
+                        ids.put(key, id);
+                        edges.vertices.add(new Vertex<>(key));
+                    }
+                    chunk.remap[local] = id;
+                }
+            }
+        } else {
+            int vertexCount = 0;
+            int rowBase = 0; // METIS vertex number of the first line of each chunk
+            int maxLabel = 0;
+            for (Chunk chunk : chunks) {
+                if (format == Format.METIS) {
+                    chunk.rowBase = rowBase;
+                    rowBase += chunk.rows;
+                }
+                vertexCount = Math.max(vertexCount, chunk.vertexCount);
+                maxLabel = Math.max(maxLabel, chunk.maxLabel);
+            }
+            if (vertexCount == 0)
+                vertexCount = maxLabel; // No DIMACS problem line, so the largest vertex number counts
+            if (format == Format.METIS) {
+                vertexCount = header[0];
+                if (rowBase != vertexCount)
+                    throw new IOException(file + " has " + rowBase + " vertex lines but its header declares " + vertexCount);
+            }
+            if (maxLabel > vertexCount)
+                throw new IOException(file + " refers to vertex " + maxLabel + " of " + vertexCount);
+            for (int i = 1; i <= vertexCount; i++) {
+                edges.vertices.add(new Vertex<>(Integer.toString(i)));
+            }
+        }
+
+        forEachChunk(chunks, chunk -> chunk.copyTo(edges, edgeBase[chunk.index]));
+        return edges;
+    }
+
+    /**
+     * Runs an action on every chunk in parallel on the pool.
+     *
+     * @param chunks the chunks
+     * @param action the action to run on each chunk
+     * @throws IOException if the action failed on any chunk
+     */
+    private void forEachChunk(List<Chunk> chunks, ChunkAction action) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            chunks.get(i).index = i;
+        }
+        try {
+            pool.invoke(new ChunkTask(chunks, action, 0, chunks.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds the start of the first line at or after the given position.
+     *
+     * @param channel  the file channel
+     * @param position the position in the file
+     * @return the position just after the next line break, or the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    private static long lineStart(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        if (position == 0 || position >= size)
+            return Math.min(position, size);
+        ByteBuffer window = ByteBuffer.allocate(64 * 1024);
+        long scan = position - 1; // The previous byte may already end a line
+        while (scan < size) {
+            window.clear();
+            int read = channel.read(window, scan);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n')
+                    return scan + i + 1;
+            }
+            scan += read;
+        }
+        return size;
+    }
+
+    /**
+     * Finds the METIS header line, skipping the comment lines before it.
+     *
+     * @param channel the file channel
+     * @param file    the file, for error messages
+     * @return the position of the header line
+     * @throws IOException if the file cannot be read or has no header
+     */
+    private static long findMetisHeader(FileChannel channel, Path file) throws IOException {
+        long position = 0;
+        ByteBuffer first = ByteBuffer.allocate(1);
+        while (position < channel.size()) {
+            first.clear();
+            channel.read(first, position);
+            if (first.get(0) != '%')
+                return position;
+            position = lineStart(channel, position + 1);
+        }
+        throw new IOException(file + " has no METIS header");
+    }
+
+    /**
+     * Parses the METIS header line.
+     *
+     * @param channel the file channel
+     * @param file    the file, for error messages
+     * @param start   the position of the header line
+     * @param end     the position just after the header line
+     * @return the vertex count, edge weight flag, vertex weight count and vertex size flag
+     * @throws IOException if the header is malformed
+     */
+    private static int[] parseMetisHeader(FileChannel channel, Path file, long start, long end) throws IOException {
+        Cursor cursor = new Cursor(file, channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), start);
+        int vertexCount = cursor.nextInt();
+        cursor.nextInt(); // The edge count is implied by the vertex lines
+        String fmt = cursor.atLineEnd() ? "0" : cursor.nextKey(false);
+        int ncon = cursor.atLineEnd() ? 1 : cursor.nextInt();
+        while (fmt.length() < 3) {
+            fmt = "0" + fmt;
+        }
+        return new int[] {vertexCount, fmt.charAt(2) == '1' ? 1 : 0, fmt.charAt(1) == '1' ? ncon : 0,
+                fmt.charAt(0) == '1' ? 1 : 0};
+    }
+
+    /**
+     * Receives each chunk of a file.
+     */
+    private interface ChunkAction {
+        /**
+         * Handles one chunk.
+         *
+         * @param chunk the chunk
+         * @throws IOException if the chunk is malformed
+         */
+        void run(Chunk chunk) throws IOException;
+    }
+
+    /**
+     * Runs an action on a range of the chunks, splitting the range until it holds a single chunk.
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final List<Chunk> chunks; // All chunks of the file
+        private final ChunkAction action; // Action to run on each chunk
+        private final int from; // First chunk of the range
+        private final int to; // End of the range, exclusive
+
+        /**
+         * Constructs a new task for the given range of chunks.
+         *
+         * @param chunks the chunks of the file
+         * @param action the action to run on each chunk
+         * @param from   the first chunk of the range
+         * @param to     the end of the range, exclusive
+         */
+        ChunkTask(List<Chunk> chunks, ChunkAction action, int from, int to) {
+            this.chunks = chunks;
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(chunks, action, from, middle), new ChunkTask(chunks, action, middle, to));
+            } else if (to > from) {
+                try {
+                    action.run(chunks.get(from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Edges read from a file, with vertex ids into the vertex list.
+     */
+    private static class EdgeList {
+        private final List<Vertex<String>> vertices = new ArrayList<>(); // Vertices by id
+        private int[] sources; // Source vertex id of each edge
+        private int[] targets; // Target vertex id of each edge
+        private double[] weights; // Weight of each edge
+        private int count; // Number of edges
+    }
+
+    /**
+     * A range of whole lines of the file and the edges parsed from it.
+     */
+    private static class Chunk {
+        private final Path file; // The file, for error messages
+        private final Format format; // Format of the file
+        private final int[] header; // Parsed METIS header, or null
+        private final ByteBuffer bytes; // Mapped lines of the chunk
+        private final long position; // Position of the chunk in the file
+        private int index; // Position of the chunk in the file order
+        private final List<String> keys = new ArrayList<>(); // Keys in order of first appearance in the chunk
+        private final Map<String, Integer> localIds = new HashMap<>(); // Chunk-local id of each key
+        private int[] remap; // Global id of each chunk-local id
+        private int[] sources = new int[1024]; // Source of each edge, local id or vertex number from 0
+        private int[] targets = new int[1024]; // Target of each edge, local id or vertex number from 0
+        private double[] weights = new double[1024]; // Weight of each edge
+        private int count; // Number of edges
+        private int rows; // Number of METIS vertex lines
+        private int rowBase; // METIS vertex number of the first line, from 0
+        private int vertexCount; // Vertex count given by a DIMACS problem line
+        private int maxLabel; // Largest vertex number seen in DIMACS or METIS
+
+        /**
+         * Constructs a new chunk.
+         *
+         * @param file     the file, for error messages
+         * @param format   the format of the file
+         * @param header   the parsed METIS header, or null
+         * @param bytes    the mapped lines of the chunk
+         * @param position the position of the chunk in the file
+         */
+        Chunk(Path file, Format format, int[] header, ByteBuffer bytes, long position) {
+            this.file = file;
+            this.format = format;
+            this.header = header;
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        /**
+         * Parses the lines of the chunk into edges.
+         *
+         * @throws IOException if a line is malformed
+         */
+        void parse() throws IOException {
+            Cursor cursor = new Cursor(file, bytes, position);
+            while (cursor.hasMore()) {
+                if (format == Format.METIS) {
+                    parseMetisLine(cursor);
+                    continue;
+                }
+                if (cursor.atLineEnd() || cursor.peek() == '#' || cursor.peek() == '%'
+                        || (format == Format.DIMACS && cursor.peek() == 'c')) {
+                    cursor.nextLine(); // Skip blank and comment lines
+                    continue;
+                }
+                if (format == Format.DIMACS) {
+                    parseDimacsLine(cursor);
+                } else {
+                    boolean csv = format == Format.CSV;
+                    int source = intern(cursor.nextKey(csv));
+                    cursor.expectSeparator(csv);
+                    int target = intern(cursor.nextKey(csv));
+                    double weight = 1.0;
+                    if (!cursor.atLineEnd()) {
+                        cursor.expectSeparator(csv);
+                        weight = cursor.nextDouble();
+                    }
+                    add(source, target, weight);
+                }
+                cursor.endLine();
+            }
+        }
+
+        /**
+         * Parses one DIMACS line that is neither blank nor a comment.
+         *
+         * @param cursor the cursor at the start of the line
+         * @throws IOException if the line is malformed
+         */
+        private void parseDimacsLine(Cursor cursor) throws IOException {
+            int kind = cursor.peek();
+            if (kind == 'p') {
+                cursor.nextKey(false);
+                cursor.nextKey(false); // Problem type, such as sp
+                vertexCount = cursor.nextInt();
+                cursor.nextInt(); // The arc count is implied by the arc lines
+            } else if (kind == 'a') {
+                cursor.nextKey(false);
+                int source = label(cursor);
+                int target = label(cursor);
+                add(source, target, cursor.nextDouble());
+            } else {
+                throw cursor.error("Unknown DIMACS line");
+            }
+        }
+
+        /**
+         * Parses one METIS line, which is either a comment or the neighbors of the next vertex.
+         *
+         * @param cursor the cursor at the start of the line
+         * @throws IOException if the line is malformed
+         */
+        private void parseMetisLine(Cursor cursor) throws IOException {
+            if (cursor.peek() == '%') {
+                cursor.nextLine(); // Comment lines do not count as vertices
+                return;
+            }
+            int row = rows++;
+            cursor.skipBlanks();
+            if (header[3] == 1 && !cursor.atLineEnd())
+                cursor.nextInt(); // Vertex size
+            for (int i = 0; i < header[2] && !cursor.atLineEnd(); i++) {
+                cursor.nextInt(); // Vertex weights
+            }
+            while (!cursor.atLineEnd()) {
+                int target = label(cursor);
+                add(row, target, header[1] == 1 ? cursor.nextDouble() : 1.0);
+            }
+            cursor.endLine();
+        }
+
+        /**
+         * Reads a vertex number from 1 and returns it counted from 0.
+         *
+         * @param cursor the cursor before the number
+         * @return the vertex number from 0
+         * @throws IOException if the number is missing or not positive
+         */
+        private int label(Cursor cursor) throws IOException {
+            int label = cursor.nextInt();
+            if (label < 1)
+                throw cursor.error("Vertex number " + label + " is not positive");
+            maxLabel = Math.max(maxLabel, label);
+            return label - 1;
+        }
+
+        /**
+         * Returns the chunk-local id of a key, giving it the next id on its first appearance.
+         *
+         * @param key the key
+         * @return the chunk-local id
+         */
+        private int intern(String key) {
+            Integer id = localIds.get(key);
+            if (id == null) {
+                id = keys.size();
+                localIds.put(key, id);
+                keys.add(key);
+            }
+            return id;
+        }
+
+        /**
+         * Appends an edge, growing the arrays when they are full.
+         *
+         * @param source the source of the edge
+         * @param target the target of the edge
+         * @param weight the weight of the edge
+         */
+        private void add(int source, int target, double weight) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, count * 2);
+                targets = Arrays.copyOf(targets, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            sources[count] = source;
+            targets[count] = target;
+            weights[count] = weight;
+            count++;
+        }
+
+        /**
+         * Copies the edges of the chunk into the merged arrays, translating them to global vertex ids.
+         *
+         * @param edges the merged edges
+         * @param base  the position of the chunk's first edge in the merged arrays
+         */
+        void copyTo(EdgeList edges, int base) {
+            for (int i = 0; i < count; i++) {
+                int source = sources[i];
+                int target = targets[i];
+                if (remap != null) {
+                    source = remap[source];
+                    target = remap[target];
+                } else if (format == Format.METIS) {
+                    source += rowBase;
+                }
+                edges.sources[base + i] = source;
+                edges.targets[base + i] = target;
+                edges.weights[base + i] = weights[i];
+            }
+        }
+    }
+
+    /**
+     * Reads tokens from the mapped bytes of a chunk.
+     */
+    private static class Cursor {
+        private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+                1e11, 1e12, 1e13, 1e14, 1e15}; // Exact powers of ten for the fast path
+
+        private final Path file; // The file, for error messages
+        private final ByteBuffer bytes; // Mapped bytes being read
+        private final long base; // Position of the bytes in the file
+        private final int limit; // Number of bytes
+        private int position; // Next byte to read
+        private byte[] scratch = new byte[64]; // Buffer for the bytes of a key
+
+        /**
+         * Constructs a new cursor at the start of the given bytes.
+         *
+         * @param file  the file, for error messages
+         * @param bytes the mapped bytes
+         * @param base  the position of the bytes in the file
+         */
+        Cursor(Path file, ByteBuffer bytes, long base) {
+            this.file = file;
+            this.bytes = bytes;
+            this.base = base;
+            this.limit = bytes.limit();
+        }
+
+        /**
+         * Checks if there are bytes left.
+         *
+         * @return true if there are bytes left, false otherwise
+         */
+        boolean hasMore() {
+            return position < limit;
+        }
+
+        /**
+         * Returns the next byte without consuming it.
+         *
+         * @return the next byte, or a line break at the end of the bytes
+         */
+        int peek() {
+            return position < limit ? bytes.get(position) : '\n';
+        }
+
+        /**
+         * Skips spaces, tabs and carriage returns.
+         */
+        void skipBlanks() {
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (b != ' ' && b != '\t' && b != '\r')
+                    break;
+                position++;
+            }
+        }
+
+        /**
+         * Skips blanks and checks if the line has ended.
+         *
+         * @return true if only a line break or the end of the bytes is left on the line, false otherwise
+         */
+        boolean atLineEnd() {
+            skipBlanks();
+            return position >= limit || bytes.get(position) == '\n';
+        }
+
+        /**
+         * Moves past the next line break.
+         */
+        void nextLine() {
+            while (position < limit && bytes.get(position++) != '\n') {
+            }
+        }
+
+        /**
+         * Checks that nothing but blanks is left on the line and moves to the next line.
+         *
+         * @throws IOException if the line has more tokens
+         */
+        void endLine() throws IOException {
+            if (!atLineEnd())
+                throw error("Unexpected text at end of line");
+            position++;
+        }
+
+        /**
+         * Consumes the separator between two fields.
+         *
+         * @param csv true if fields are separated by commas, false if by blanks
+         * @throws IOException if the separator is missing
+         */
+        void expectSeparator(boolean csv) throws IOException {
+            skipBlanks();
+            if (csv) {
+                if (peek() != ',')
+                    throw error("Expected a comma");
+                position++;
+            } else if (atLineEnd()) {
+                throw error("Expected another field");
+            }
+        }
+
+        /**
+         * Reads a key, which ends at a blank or line break, or at a comma for comma separated fields.
+         * Blanks around a comma separated key are removed.
+         *
+         * @param csv true if fields are separated by commas, false if by blanks
+         * @return the key
+         * @throws IOException if the key is empty
+         */
+        String nextKey(boolean csv) throws IOException {
+            skipBlanks();
+            int start = position;
+            int end = start;
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (b == '\n' || (csv ? b == ',' : b == ' ' || b == '\t' || b == '\r'))
+                    break;
+                position++;
+                if (b != ' ' && b != '\t' && b != '\r')
+                    end = position; // Trailing blanks are not part of the key
+            }
+            if (end == start)
+                throw error("Expected a key");
+            int length = end - start;
+            if (scratch.length < length)
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            bytes.get(start, scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Reads a decimal integer.
+         *
+         * @return the integer
+         * @throws IOException if there is no integer or it does not fit in an int
+         */
+        int nextInt() throws IOException {
+            skipBlanks();
+            boolean negative = position < limit && bytes.get(position) == '-';
+            if (negative)
+                position++;
+            int start = position;
+            long value = 0;
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (b < '0' || b > '9')
+                    break;
+                value = value * 10 + (b - '0');
+                if (value > Integer.MAX_VALUE)
+                    throw error("Integer too large");
+                position++;
+            }
+            if (position == start || !atTokenEnd())
+                throw error("Expected an integer");
+            return (int) (negative ? -value : value);
+        }
+
+        /**
+         * Reads a decimal number. Plain numbers with up to 15 significant digits are parsed directly, which
+         * gives the same correctly rounded result as Double.parseDouble; other forms fall back to it.
+         *
+         * @return the number
+         * @throws IOException if there is no number
+         */
+        double nextDouble() throws IOException {
+            skipBlanks();
+            int start = position;
+            boolean negative = position < limit && bytes.get(position) == '-';
+            if (negative)
+                position++;
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1; // -1 until the decimal point is seen
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (b >= '0' && b <= '9') {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fractionDigits >= 0)
+                        fractionDigits++;
+                } else if (b == '.' && fractionDigits < 0) {
+                    fractionDigits = 0;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digits > 0 && digits <= 15 && atTokenEnd()) {
+                double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+                return negative ? -value : value;
+            }
+            position = start; // Exponents, long mantissas and special values
+            String token = nextKey(false);
+            try {
+                return Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Expected a number but found " + token);
+            }
+        }
+
+        /**
+         * Checks if the cursor is at the end of a token.
+         *
+         * @return true if the next byte is a blank, a comma or a line break, or the bytes ended
+         */
+        private boolean atTokenEnd() {
+            int b = peek();
+            return b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == ',';
+        }
+
+        /**
+         * Creates an exception for a malformed line at the cursor.
+         *
+         * @param message the description of the problem
+         * @return the exception
+         */
+        IOException error(String message) {
+            return new IOException(message + " in " + file + " at byte " + (base + position));
+        }
+
+    }
+}
@@ -0,0 +1,11 @@
+public interface Heuristic<V> {
+    /**
+     * Estimates the length of the shortest path between two vertices from their data.
+     * The estimate must never exceed the real length for the search to find shortest paths.
+     *
+     * @param from the data of the vertex the path starts at
+     * @param to   the data of the target vertex
+     * @return a lower bound on the distance between the vertices
+     */
+    double estimate(V from, V to);
+}
\ No newline at end of file
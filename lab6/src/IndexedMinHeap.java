@@ -0,0 +1,234 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+public class IndexedMinHeap {
+    private static final int DEFAULT_ARITY = 4; // Four children per node keeps the tree shallow and sift-down cache friendly
+
+    private final int arity; // Number of children per heap node
+    private int[] heap; // Heap slots holding element ids
+    private int[] positions; // Heap slot of each id, or -1 if the id is not in the heap
+    private double[] keys; // Current key of each id
+    private int size; // Number of elements in the heap
+
+    /**
+     * Constructs a new 4-ary heap for ids in the range [0, capacity).
+     *
+     * @param capacity the number of distinct ids the heap can hold
+     */
+    public IndexedMinHeap(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    /**
+     * Constructs a new d-ary heap for ids in the range [0, capacity).
+     *
+     * @param capacity the number of distinct ids the heap can hold
+     * @param arity    the number of children per heap node
+     */
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("Heap arity must be at least 2, got " + arity);
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(positions, -1); // No id is in the heap yet
+    }
+
+    /**
+     * Grows the heap so that it can hold ids in the range [0, capacity).
+     *
+     * @param capacity the required id capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positions.length)
+            return;
+        int oldCapacity = positions.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1); // New ids are not in the heap
+    }
+
+    /**
+     * Returns the number of elements in the heap.
+     *
+     * @return the size of the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the heap has no elements.
+     *
+     * @return true if the heap is empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks if the given id is currently in the heap.
+     *
+     * @param id the id
+     * @return true if the id is in the heap, false otherwise
+     */
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * Returns the current key of the given id.
+     *
+     * @param id the id, which must be in the heap
+     * @return the key of the id
+     */
+    public double getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Inserts an id that is not yet in the heap.
+     *
+     * @param id  the id to insert
+     * @param key the key of the id
+     */
+    public void insert(int id, double key) {
+        if (positions[id] >= 0)
+            throw new IllegalArgumentException("Id " + id + " is already in the heap");
+        keys[id] = key;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Lowers the key of an id that is already in the heap.
+     *
+     * @param id  the id
+     * @param key the new key, which must not be greater than the current key
+     */
+    public void decreaseKey(int id, double key) {
+        if (positions[id] < 0)
+            throw new IllegalArgumentException("Id " + id + " is not in the heap");
+        if (key > keys[id])
+            throw new IllegalArgumentException("New key " + key + " is greater than current key " + keys[id]);
+        keys[id] = key;
+        siftUp(positions[id]);
+    }
+
+    /**
+     * Inserts the id, or lowers its key if it is already in the heap with a larger key.
+     *
+     * @param id  the id
+     * @param key the key of the id
+     * @return true if the heap changed, false otherwise
+     */
+    public boolean insertOrDecrease(int id, double key) {
+        int position = positions[id];
+        if (position < 0) {
+            insert(id, key);
+            return true;
+        }
+        if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(position);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the id with the smallest key without removing it.
+     *
+     * @return the id with the smallest key
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty");
+        return heap[0];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     *
+     * @return the id with the smallest key
+     */
+    public int poll() {
+        if (size == 0)
+            throw new NoSuchElementException("Heap is empty");
+        int min = heap[0];
+        positions[min] = -1; // The minimum leaves the heap
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last; // Move the last element to the root and restore the heap order
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all elements from the heap. Runs in time proportional to the current size, not the capacity.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves the element at the given slot towards the root until its parent has a smaller or equal key.
+     *
+     * @param position the heap slot
+     */
+    private void siftUp(int position) {
+        int id = heap[position];
+        double key = keys[id];
+        while (position > 0) {
+            int parentPosition = (position - 1) / arity;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key)
+                break;
+            heap[position] = parent; // Move the parent down one level
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    /**
+     * Moves the element at the given slot away from the root until all its children have larger or equal keys.
+     *
+     * @param position the heap slot
+     */
+    private void siftDown(int position) {
+        int id = heap[position];
+        double key = keys[id];
+        while (true) {
+            int firstChild = position * arity + 1;
+            if (firstChild >= size)
+                break;
+            int lastChild = Math.min(firstChild + arity, size);
+            int minPosition = firstChild; // Find the child with the smallest key
+            double minKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; child++) {
+                double childKey = keys[heap[child]];
+                if (childKey < minKey) {
+                    minKey = childKey;
+                    minPosition = child;
+                }
+            }
+            if (key <= minKey)
+                break;
+            int minId = heap[minPosition];
+            heap[position] = minId; // Move the smallest child up one level
+            positions[minId] = position;
+            position = minPosition;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
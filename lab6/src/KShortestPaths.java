@@ -0,0 +1,451 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+public class KShortestPaths<V> {
+    /**
+     * A loopless path between the source and target of a query, together with its length.
+     */
+    public static class Path<V> {
+        private final List<Vertex<V>> vertices; // Vertices on the path, starting with the source
+        private final double cost; // Sum of the edge weights along the path
+
+        /**
+         * Constructs a new path.
+         *
+         * @param vertices the vertices on the path
+         * @param cost     the length of the path
+         */
+        Path(List<Vertex<V>> vertices, double cost) {
+            this.vertices = vertices;
+            this.cost = cost;
+        }
+
+        /**
+         * Returns the vertices on the path, starting with the source.
+         *
+         * @return the vertices on the path
+         */
+        public List<Vertex<V>> getVertices() {
+            return vertices;
+        }
+
+        /**
+         * Returns the length of the path.
+         *
+         * @return the sum of the edge weights along the path
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return vertices + " (" + cost + ")";
+        }
+    }
+
+    private WeightedGraph<V> graph; // The graph to perform the searches on
+    private CompactGraph<V> compactGraph; // The compact graph to perform the searches on, if constructed from one
+    private final ForkJoinPool pool; // Pool that runs the spur searches
+    private final ThreadLocal<Workspace<V>> workspaces = new ThreadLocal<>(); // Search state reused by each thread
+
+    /**
+     * Constructs a new k-shortest paths engine over the given graph, running on the common pool.
+     *
+     * @param graph the graph to perform the searches on
+     */
+    public KShortestPaths(WeightedGraph<V> graph) {
+        this.graph = graph;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Constructs a new k-shortest paths engine that runs directly on the given compact graph, using the given pool.
+     * Every edge of the compact graph must exist in both directions with the same weight.
+     *
+     * @param compactGraph the compact graph to perform the searches on
+     * @param pool         the pool that runs the spur searches
+     */
+    public KShortestPaths(CompactGraph<V> compactGraph, ForkJoinPool pool) {
+        this.compactGraph = compactGraph;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the compact graph to search, the latest snapshot of the weighted graph that contains the
+     * given vertex. The snapshot may lag behind writers on other threads, see WeightedGraph.latestSnapshot.
+     *
+     * @param id the highest id of a vertex the query names
+     * @return the compact graph
+     */
+    private CompactGraph<V> snapshot(int id) {
+        return compactGraph != null ? compactGraph : graph.latestSnapshot(id);
+    }
+
+    /**
+     * Finds up to k loopless paths from the source to the target in increasing order of length with
+     * Yen's algorithm. The graph is never changed: removed edges and root vertices are masked per spur
+     * search. A single shortest-path tree towards the target, built once per query, gives every spur
+     * search an exact lower bound for A*, and spurs whose tree path avoids the masks need no search at all.
+     * The spur searches of each round run in parallel on the pool.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @param k      the largest number of paths to return
+     * @return the paths, shortest first, or fewer than k if the graph has no more loopless paths
+     */
+    public List<Path<V>> shortestPaths(Vertex<V> source, Vertex<V> target, int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("Number of paths must be at least 1, got " + k);
+        CompactGraph<V> snapshot = snapshot(Math.max(source.getId(), target.getId())); // Pin one version of the graph for the whole query
+        int from = snapshot.indexOf(source);
+        int to = snapshot.indexOf(target);
+
+        // Distances towards the target, and the next hop on a shortest path, since every edge goes both ways
+        SearchResult<V> tree = new DijkstraSearch<>(snapshot).search(target);
+        List<Path<V>> paths = new ArrayList<>();
+        if (tree.distance(from) == Double.POSITIVE_INFINITY)
+            return paths; // The target cannot be reached at all
+
+        List<Candidate> accepted = new ArrayList<>(); // Paths found so far, shortest first
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(); // Candidate paths, shortest first
+        Set<Candidate> seen = new HashSet<>(); // Every path ever added to the candidates, to skip duplicates
+        Candidate first = treePath(snapshot, tree, new int[] {from}, new double[] {0.0}, 0, to);
+        candidates.add(first);
+        seen.add(first);
+
+        while (accepted.size() < k && !candidates.isEmpty()) {
+            Candidate last = candidates.poll();
+            accepted.add(last);
+            if (accepted.size() == k)
+                break;
+            // Spur vertices before the deviation were already expanded by the parent of the last path
+            Candidate[] spurs = new Candidate[last.vertices.length - 1];
+            pool.invoke(new SpurTask(snapshot, tree, accepted, last, to, spurs, last.deviation, spurs.length));
+            for (Candidate spur : spurs) {
+                if (spur != null && seen.add(spur))
+                    candidates.add(spur);
+            }
+        }
+
+        for (Candidate candidate : accepted) {
+            List<Vertex<V>> vertices = new ArrayList<>(candidate.vertices.length);
+            for (int vertex : candidate.vertices) {
+                vertices.add(snapshot.getVertex(vertex));
+            }
+            paths.add(new Path<>(vertices, candidate.costs[candidate.costs.length - 1]));
+        }
+        return paths;
+    }
+
+    /**
+     * Finds the shortest path from the spur vertex at the given position of the last accepted path that
+     * leaves the root before it unchanged. The root vertices are masked, and so is the next edge of every
+     * accepted path that shares the same root.
+     *
+     * @param workspace the search state of the calling thread
+     * @param snapshot  the graph to search
+     * @param tree      the shortest-path tree towards the target
+     * @param accepted  the paths found so far
+     * @param last      the last accepted path
+     * @param spurIndex the position of the spur vertex in the last path
+     * @param target    the target vertex id
+     * @return the new candidate, or null if every route from the spur vertex is masked
+     */
+    private Candidate spur(Workspace<V> workspace, CompactGraph<V> snapshot, SearchResult<V> tree,
+                           List<Candidate> accepted, Candidate last, int spurIndex, int target) {
+        int[] root = last.vertices;
+        int spurVertex = root[spurIndex];
+        int stamp = workspace.nextStamp();
+        for (int i = 0; i < spurIndex; i++) {
+            workspace.vertexMask[root[i]] = stamp; // The path must not return to its root
+        }
+        for (Candidate path : accepted) {
+            if (path.vertices.length > spurIndex + 1 && sharesRoot(path.vertices, root, spurIndex)) {
+                int next = path.vertices[spurIndex + 1];
+                for (int edge = snapshot.offset(spurVertex), end = snapshot.offset(spurVertex + 1); edge < end; edge++) {
+                    if (snapshot.target(edge) == next)
+                        workspace.edgeMask[edge] = stamp; // This deviation was already taken
+                }
+            }
+        }
+
+        if (treePathIsFree(workspace, snapshot, tree, spurVertex, stamp))
+            return treePath(snapshot, tree, root, last.costs, spurIndex, target);
+        return searchSpur(workspace, snapshot, tree, last, spurIndex, target, stamp);
+    }
+
+    /**
+     * Checks if two paths start with the same vertices up to and including the given position.
+     *
+     * @param path     the first path
+     * @param root     the second path
+     * @param position the last position to compare
+     * @return true if the prefixes are equal, false otherwise
+     */
+    private static boolean sharesRoot(int[] path, int[] root, int position) {
+        for (int i = 0; i <= position; i++) {
+            if (path[i] != root[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the tree path from the spur vertex to the target avoids the masked vertices and edges.
+     * Masked edges all leave the spur vertex, so only the first hop needs its edge checked.
+     *
+     * @param workspace  the search state holding the masks
+     * @param snapshot   the graph to search
+     * @param tree       the shortest-path tree towards the target
+     * @param spurVertex the spur vertex id
+     * @param stamp      the stamp of the current masks
+     * @return true if the tree path can be used as it is, false otherwise
+     */
+    private boolean treePathIsFree(Workspace<V> workspace, CompactGraph<V> snapshot, SearchResult<V> tree,
+                                   int spurVertex, int stamp) {
+        int next = tree.predecessor(spurVertex);
+        if (next != -1) {
+            for (int edge = snapshot.offset(spurVertex), end = snapshot.offset(spurVertex + 1); edge < end; edge++) {
+                if (snapshot.target(edge) == next && workspace.edgeMask[edge] == stamp)
+                    return false;
+            }
+        }
+        for (int vertex = next; vertex != -1; vertex = tree.predecessor(vertex)) {
+            if (workspace.vertexMask[vertex] == stamp)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the candidate that follows the root up to the spur vertex and then the tree towards the target.
+     *
+     * @param snapshot  the graph to search
+     * @param tree      the shortest-path tree towards the target
+     * @param root      the path holding the root
+     * @param rootCosts the distance from the source to each vertex of the root
+     * @param spurIndex the position of the spur vertex in the root
+     * @param target    the target vertex id
+     * @return the new candidate
+     */
+    private Candidate treePath(CompactGraph<V> snapshot, SearchResult<V> tree, int[] root, double[] rootCosts,
+                               int spurIndex, int target) {
+        int length = spurIndex + 1;
+        for (int vertex = root[spurIndex]; vertex != target; vertex = tree.predecessor(vertex)) {
+            length++;
+        }
+        int[] vertices = Arrays.copyOf(root, length);
+        double[] costs = Arrays.copyOf(rootCosts, length);
+        double spurCost = rootCosts[spurIndex];
+        double spurDistance = tree.distance(root[spurIndex]);
+        for (int i = spurIndex + 1; i < length; i++) {
+            vertices[i] = tree.predecessor(vertices[i - 1]);
+            costs[i] = spurCost + (spurDistance - tree.distance(vertices[i])); // Tree distances shrink towards the target
+        }
+        return new Candidate(vertices, costs, spurIndex);
+    }
+
+    /**
+     * Runs A* from the spur vertex to the target around the masked vertices and edges. The tree distances
+     * are exact on the unmasked graph, so they are a consistent lower bound on the masked graph.
+     *
+     * @param workspace the search state of the calling thread
+     * @param snapshot  the graph to search
+     * @param tree      the shortest-path tree towards the target
+     * @param last      the last accepted path
+     * @param spurIndex the position of the spur vertex in the last path
+     * @param target    the target vertex id
+     * @param stamp     the stamp of the current masks
+     * @return the new candidate, or null if the target cannot be reached
+     */
+    private Candidate searchSpur(Workspace<V> workspace, CompactGraph<V> snapshot, SearchResult<V> tree,
+                                 Candidate last, int spurIndex, int target, int stamp) {
+        SearchResult<V> result = workspace.result;
+        IndexedMinHeap heap = workspace.heap;
+        int spurVertex = last.vertices[spurIndex];
+        result.reset(snapshot, spurVertex);
+        heap.clear();
+        heap.ensureCapacity(snapshot.vertexCount());
+
+        result.reach(spurVertex, 0.0, -1);
+        heap.insert(spurVertex, tree.distance(spurVertex));
+        while (!heap.isEmpty()) {
+            int vertex = heap.poll(); // Retrieve the vertex with the smallest distance plus tree distance
+            if (vertex == target)
+                break; // The distance to the target is final
+            double distance = result.distance(vertex);
+            for (int edge = snapshot.offset(vertex), end = snapshot.offset(vertex + 1); edge < end; edge++) {
+                int neighbor = snapshot.target(edge);
+                if (workspace.vertexMask[neighbor] == stamp || workspace.edgeMask[edge] == stamp)
+                    continue; // Skip the root and the deviations already taken
+                double newDistance = distance + snapshot.weight(edge);
+                if (newDistance < result.distance(neighbor)) {
+                    result.reach(neighbor, newDistance, vertex);
+                    heap.insertOrDecrease(neighbor, newDistance + tree.distance(neighbor));
+                }
+            }
+        }
+        if (result.distance(target) == Double.POSITIVE_INFINITY)
+            return null;
+
+        int length = spurIndex + 1;
+        for (int vertex = target; vertex != spurVertex; vertex = result.predecessor(vertex)) {
+            length++;
+        }
+        int[] vertices = Arrays.copyOf(last.vertices, length);
+        double[] costs = Arrays.copyOf(last.costs, length);
+        for (int i = length - 1, vertex = target; i > spurIndex; i--, vertex = result.predecessor(vertex)) {
+            vertices[i] = vertex; // Walk back from the target to the spur vertex
+            costs[i] = last.costs[spurIndex] + result.distance(vertex);
+        }
+        return new Candidate(vertices, costs, spurIndex);
+    }
+
+    /**
+     * Returns the calling thread's search state for the given snapshot, creating it on first use.
+     *
+     * @param snapshot the graph to search
+     * @return the search state of the calling thread
+     */
+    private Workspace<V> workspace(CompactGraph<V> snapshot) {
+        Workspace<V> workspace = workspaces.get();
+        if (workspace == null) {
+            workspace = new Workspace<>();
+            workspaces.set(workspace);
+        }
+        if (workspace.graph != snapshot) // The graph changed since this thread last searched
+            workspace.bind(snapshot);
+        return workspace;
+    }
+
+    /**
+     * A path found by the algorithm, compared by length.
+     */
+    private static class Candidate implements Comparable<Candidate> {
+        private final int[] vertices; // Vertex ids on the path, starting with the source
+        private final double[] costs; // Distance from the source to each vertex along the path
+        private final int deviation; // Position where the path leaves the path it was derived from
+
+        /**
+         * Constructs a new candidate.
+         *
+         * @param vertices  the vertex ids on the path
+         * @param costs     the distance from the source to each vertex along the path
+         * @param deviation the position where the path leaves the path it was derived from
+         */
+        Candidate(int[] vertices, double[] costs, int deviation) {
+            this.vertices = vertices;
+            this.costs = costs;
+            this.deviation = deviation;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int order = Double.compare(costs[costs.length - 1], other.costs[other.costs.length - 1]);
+            return order != 0 ? order : Integer.compare(vertices.length, other.vertices.length); // Fewer hops first
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Candidate && Arrays.equals(vertices, ((Candidate) other).vertices);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(vertices);
+        }
+    }
+
+    /**
+     * Search state owned by one thread. Masks are marked with a stamp per spur search, so they never
+     * have to be cleared, not even when the state moves to another snapshot.
+     */
+    private static class Workspace<V> {
+        private CompactGraph<V> graph; // Snapshot the state belongs to
+        private final SearchResult<V> result = new SearchResult<>(); // Distances of the spur search
+        private final IndexedMinHeap heap = new IndexedMinHeap(0); // Heap of the spur search
+        private int[] vertexMask = new int[0]; // Stamp of the spur search that masked each vertex
+        private int[] edgeMask = new int[0]; // Stamp of the spur search that masked each edge
+        private int stamp; // Stamp of the current spur search
+
+        /**
+         * Moves the state to the given snapshot. The masks are kept and only grow when the snapshot has
+         * more vertices or edges; their old stamps are all older than the next one, so they mask nothing.
+         *
+         * @param graph the snapshot the state belongs to from now on
+         */
+        void bind(CompactGraph<V> graph) {
+            this.graph = graph;
+            if (vertexMask.length < graph.vertexCount())
+                vertexMask = Arrays.copyOf(vertexMask, graph.vertexCount());
+            if (edgeMask.length < graph.edgeCount())
+                edgeMask = Arrays.copyOf(edgeMask, graph.edgeCount());
+        }
+
+        /**
+         * Starts a new set of masks, dropping those of the previous spur search.
+         *
+         * @return the stamp of the new masks
+         */
+        int nextStamp() {
+            if (stamp == Integer.MAX_VALUE) { // Stamps wrapped around, so clear the masks once
+                Arrays.fill(vertexMask, 0);
+                Arrays.fill(edgeMask, 0);
+                stamp = 0;
+            }
+            return ++stamp;
+        }
+    }
+
+    /**
+     * Computes the spur candidates of a range of spur positions, splitting the range until it holds a
+     * single position.
+     */
+    private class SpurTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable
+        private final CompactGraph<V> snapshot; // Snapshot shared by the query
+        private final SearchResult<V> tree; // Shortest-path tree towards the target, read only
+        private final List<Candidate> accepted; // Paths found so far, read only
+        private final Candidate last; // Last accepted path
+        private final int target; // Target vertex id
+        private final Candidate[] spurs; // Candidate found at each spur position, or null
+        private final int from; // First spur position of the range
+        private final int to; // End of the range, exclusive
+
+        /**
+         * Constructs a new task for the given range of spur positions.
+         *
+         * @param snapshot the snapshot shared by the query
+         * @param tree     the shortest-path tree towards the target
+         * @param accepted the paths found so far
+         * @param last     the last accepted path
+         * @param target   the target vertex id
+         * @param spurs    receives the candidate found at each spur position
+         * @param from     the first spur position of the range
+         * @param to       the end of the range, exclusive
+         */
+        SpurTask(CompactGraph<V> snapshot, SearchResult<V> tree, List<Candidate> accepted, Candidate last,
+                 int target, Candidate[] spurs, int from, int to) {
+            this.snapshot = snapshot;
+            this.tree = tree;
+            this.accepted = accepted;
+            this.last = last;
+            this.target = target;
+            this.spurs = spurs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SpurTask(snapshot, tree, accepted, last, target, spurs, from, middle),
+                        new SpurTask(snapshot, tree, accepted, last, target, spurs, middle, to));
+            } else if (to > from) {
+                spurs[from] = spur(workspace(snapshot), snapshot, tree, accepted, last, from, target);
+            }
+        }
+    }
+}
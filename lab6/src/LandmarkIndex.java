@@ -0,0 +1,208 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+public class LandmarkIndex<V> {
+    private static final int MAGIC = 0x414c5432; // "ALT2", marks a landmark table file
+    private final CompactGraph<V> graph; // The graph the distances were computed on
+    private final int[] landmarks; // Ids of the landmark vertices
+    private final double[][] distances; // Distance from each landmark to every vertex
+
+    /**
+     * Constructs a new landmark index from precomputed distance tables.
+     *
+     * @param graph     the graph the distances were computed on
+     * @param landmarks the ids of the landmark vertices
+     * @param distances the distances from each landmark to every vertex
+     */
+    private LandmarkIndex(CompactGraph<V> graph, int[] landmarks, double[][] distances) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.distances = distances;
+    }
+
+    /**
+     * Selects landmarks and computes their distance tables. Landmarks are picked by farthest-point selection
+     * on hop counts: the first is vertex 0, and each next one is the vertex of that component whose
+     * breadth-first distance in edges to its closest chosen landmark is the largest. If the component has
+     * fewer vertices than requested, selection stops once every vertex is a landmark, so the index may hold
+     * fewer landmarks than asked for. Vertices outside the component of vertex 0 get no landmark and a lower
+     * bound of 0. The distance tables are then computed with Dijkstra's algorithm for all landmarks in parallel.
+     *
+     * @param graph the graph to index, with every edge present in both directions
+     * @param count the largest number of landmarks
+     * @param <V>   the type of the vertex data
+     * @return the landmark index
+     */
+    public static <V> LandmarkIndex<V> build(CompactGraph<V> graph, int count) {
+        if (count < 1 || count > graph.vertexCount())
+            throw new IllegalArgumentException("Landmark count " + count + " must be between 1 and " + graph.vertexCount());
+
+        int[] landmarks = new int[count];
+        int[] hops = new int[graph.vertexCount()]; // Edges to the closest landmark chosen so far
+        Arrays.fill(hops, Integer.MAX_VALUE);
+        BreadthFirstSearch<V> bfs = new BreadthFirstSearch<>(graph);
+        int next = 0; // Start from vertex 0 and move away from it within its component
+        int chosen = 0;
+        while (chosen < count) {
+            landmarks[chosen++] = next;
+            SearchResult<V> result = bfs.search(graph.getVertex(next));
+            for (int j = 0; j < result.visitCount(); j++) {
+                int vertex = result.visited(j);
+                hops[vertex] = Math.min(hops[vertex], (int) result.distance(vertex));
+            }
+            for (int vertex = 0; vertex < hops.length; vertex++) {
+                if (hops[vertex] != Integer.MAX_VALUE && hops[vertex] > hops[next])
+                    next = vertex; // The reached vertex farthest from all chosen landmarks
+            }
+            if (hops[next] == 0)
+                break; // Every vertex of the component is already a landmark
+        }
+        int[] picked = chosen < count ? Arrays.copyOf(landmarks, chosen) : landmarks;
+
+        double[][] distances = new double[picked.length][];
+        IntStream.range(0, picked.length).parallel().forEach(i -> {
+            SearchResult<V> result = new DijkstraSearch<>(graph).search(graph.getVertex(picked[i]));
+            double[] row = new double[graph.vertexCount()];
+            for (int vertex = 0; vertex < row.length; vertex++) {
+                row[vertex] = result.distance(vertex);
+            }
+            distances[i] = row;
+        });
+        return new LandmarkIndex<>(graph, picked, distances);
+    }
+
+    /**
+     * Loads landmark tables saved by save for the given graph. The file records a checksum of the edge
+     * offsets, targets and weights, so tables computed for another graph of the same size are rejected
+     * instead of giving ALTSearch lower bounds that are too high.
+     *
+     * @param graph the graph the tables were computed on
+     * @param file  the file to read
+     * @param <V>   the type of the vertex data
+     * @return the landmark index
+     * @throws IOException if the file cannot be read or does not match the graph
+     */
+    public static <V> LandmarkIndex<V> load(CompactGraph<V> graph, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a landmark table file");
+            int vertexCount = in.readInt();
+            int edgeCount = in.readInt();
+            long checksum = in.readLong();
+            if (vertexCount != graph.vertexCount() || edgeCount != graph.edgeCount() || checksum != checksum(graph))
+                throw new IOException("Landmark tables in " + file + " were computed for a different graph");
+
+            int count = in.readInt();
+            if (count < 1 || count > vertexCount)
+                throw new IOException(file + " has " + count + " landmarks for " + vertexCount + " vertices");
+            int[] landmarks = new int[count];
+            double[][] distances = new double[count][vertexCount];
+            for (int i = 0; i < count; i++) {
+                landmarks[i] = in.readInt();
+                if (landmarks[i] < 0 || landmarks[i] >= vertexCount)
+                    throw new IOException(file + " has landmark " + landmarks[i] + " of " + vertexCount + " vertices");
+                for (int vertex = 0; vertex < vertexCount; vertex++) {
+                    distances[i][vertex] = in.readDouble();
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (distances[i][landmarks[i]] != 0.0)
+                    throw new IOException(file + " has a distance table that does not start at its landmark");
+            }
+            return new LandmarkIndex<>(graph, landmarks, distances);
+        }
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a checksum of the edge offsets, targets and weights of a graph, to recognize
+     * the graph a saved table belongs to.
+     *
+     * @param graph the graph
+     * @return the checksum
+     */
+    private static long checksum(CompactGraph<?> graph) {
+        long hash = 0xcbf29ce484222325L;
+        for (int vertex = 0; vertex <= graph.vertexCount(); vertex++) {
+            hash = (hash ^ graph.offset(vertex)) * 0x100000001b3L;
+        }
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            hash = (hash ^ graph.target(edge)) * 0x100000001b3L;
+            hash = (hash ^ Double.doubleToLongBits(graph.weight(edge))) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Saves the landmark tables so they can be loaded again without recomputing them.
+     *
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(graph.vertexCount()); // Graph shape, checked when loading
+            out.writeInt(graph.edgeCount());
+            out.writeLong(checksum(graph));
+            out.writeInt(landmarks.length);
+            for (int i = 0; i < landmarks.length; i++) {
+                out.writeInt(landmarks[i]);
+                for (double distance : distances[i]) {
+                    out.writeDouble(distance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the graph the landmark tables were computed on.
+     *
+     * @return the graph
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the number of landmarks.
+     *
+     * @return the number of landmarks
+     */
+    public int landmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns the id of the landmark at the given position.
+     *
+     * @param index the landmark position
+     * @return the vertex id of the landmark
+     */
+    public int landmark(int index) {
+        return landmarks[index];
+    }
+
+    /**
+     * Returns a lower bound on the distance between two vertices from the triangle inequality:
+     * for every landmark L, dist(v, t) is at least |dist(L, t) - dist(L, v)|.
+     *
+     * @param vertex the vertex id
+     * @param target the target vertex id
+     * @return the lower bound, or infinity if the vertices are in different components
+     */
+    public double lowerBound(int vertex, int target) {
+        double bound = 0.0;
+        for (double[] row : distances) {
+            double toTarget = row[target];
+            double toVertex = row[vertex];
+            if (toTarget == Double.POSITIVE_INFINITY && toVertex == Double.POSITIVE_INFINITY)
+                continue; // The landmark is in another component and says nothing
+            if (toTarget == Double.POSITIVE_INFINITY || toVertex == Double.POSITIVE_INFINITY)
+                return Double.POSITIVE_INFINITY; // Exactly one of the vertices shares the landmark's component
+            bound = Math.max(bound, Math.abs(toTarget - toVertex));
+        }
+        return bound;
+    }
+}
\ No newline at end of file
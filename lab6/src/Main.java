@@ -25,6 +25,10 @@ public class Main {
 
         Search<String> bfs = new BreadthFirstSearch<>(graph);
         System.out.println("BFS: ");
-        bfs.search(vertexA);
+        bfs.search(vertexA).printVisitOrder(System.out);
+
+        Search<String> dijkstra = new DijkstraSearch<>(graph);
+        System.out.println("Dijkstra: ");
+        dijkstra.search(vertexA).printDistances(System.out);
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+public class MappedCompactGraph<V> extends CompactGraph<V> {
+    private final int vertexCount; // Number of vertices in the graph
+    private final int edgeCount; // Number of directed edges in the graph
+    private final IntBuffer offsets; // Mapped edge offsets, with a trailing end marker
+    private final IntBuffer targets; // Mapped target vertex id of each edge
+    private final DoubleBuffer weights; // Mapped weight of each edge
+    private final LongBuffer payloadIndex; // Mapped start of each vertex payload, with a trailing end marker
+    private final ByteBuffer payloads; // Mapped encoded vertex data
+    private final GraphFile.Codec<V> codec; // Decodes the vertex data
+    private final long mappedBytes; // Size of the mapped file
+    private final AtomicReferenceArray<Vertex<V>> vertices; // Vertices decoded so far by id, or null
+
+    /**
+     * Constructs a new graph over the mapped sections of a graph file.
+     *
+     * @param vertexCount  the number of vertices
+     * @param edgeCount    the number of directed edges
+     * @param offsets      the mapped edge offsets
+     * @param targets      the mapped edge targets
+     * @param weights      the mapped edge weights
+     * @param payloadIndex the mapped start of each vertex payload
+     * @param payloads     the mapped vertex payloads
+     * @param codec        the codec for the vertex data
+     * @param mappedBytes  the size of the mapped file
+     */
+    MappedCompactGraph(int vertexCount, int edgeCount, IntBuffer offsets, IntBuffer targets, DoubleBuffer weights,
+                       LongBuffer payloadIndex, ByteBuffer payloads, GraphFile.Codec<V> codec, long mappedBytes) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.payloadIndex = payloadIndex;
+        this.payloads = payloads;
+        this.codec = codec;
+        this.mappedBytes = mappedBytes;
+        this.vertices = new AtomicReferenceArray<>(vertexCount);
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the vertex with the given id, decoding its data from the file the first time it is asked for.
+     * Every call for the same id returns the same vertex, even from several threads.
+     *
+     * @param id the vertex id
+     * @return the vertex
+     */
+    @Override
+    public Vertex<V> getVertex(int id) {
+        Vertex<V> vertex = vertices.get(id);
+        if (vertex != null)
+            return vertex;
+        int start = (int) payloadIndex.get(id);
+        int end = (int) payloadIndex.get(id + 1);
+        vertex = new Vertex<>(codec.decode(payloads.slice(start, end - start).order(ByteOrder.LITTLE_ENDIAN)));
+        vertex.setId(id);
+        if (!vertices.compareAndSet(id, null, vertex))
+            vertex = vertices.get(id); // Another thread decoded the vertex first
+        return vertex;
+    }
+
+    @Override
+    public int indexOf(Vertex<V> vertex) {
+        int id = vertex.getId();
+        if (id < 0 || id >= vertexCount || vertices.get(id) != vertex)
+            throw new IllegalArgumentException("Vertex " + vertex + " is not in the graph");
+        return id;
+    }
+
+    @Override
+    public int offset(int vertex) {
+        return offsets.get(vertex);
+    }
+
+    @Override
+    public int degree(int vertex) {
+        return offsets.get(vertex + 1) - offsets.get(vertex);
+    }
+
+    @Override
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    @Override
+    public double weight(int edge) {
+        return weights.get(edge);
+    }
+
+    /**
+     * Estimates the heap memory held by this graph. The edges stay in the mapped file and are not counted.
+     *
+     * @return the estimated size in bytes
+     */
+    @Override
+    public long estimatedBytes() {
+        return 16 + 4L * vertexCount; // Table of decoded vertices
+    }
+
+    /**
+     * Returns the size of the mapped file, which the operating system pages in as the graph is read.
+     *
+     * @return the mapped size in bytes
+     */
+    public long mappedBytes() {
+        return mappedBytes;
+    }
+}
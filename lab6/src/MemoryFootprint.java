@@ -0,0 +1,351 @@
+import com.sun.management.HotSpotDiagnosticMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+public class MemoryFootprint {
+    /**
+     * The parts of a weighted graph that hold memory.
+     */
+    public enum Component {
+        /** The map from each vertex to its list of neighbors: the map, its table and one entry per vertex. */
+        ADJACENCY_MAP("adjacencyList map entries"),
+        /** The neighbor lists, with one node or array slot per directed edge. */
+        NEIGHBOR_LISTS("neighbor list nodes"),
+        /** The map of adjacent vertices inside each vertex, with one entry per directed edge. */
+        VERTEX_MAPS("Vertex.adjacentVertices entries"),
+        /** The boxed weight of every vertex map entry. */
+        BOXED_WEIGHTS("boxed Double weights"),
+        /** The vertex objects and the table of vertices by id. */
+        VERTICES("vertices and id table"),
+        /** The data held by the vertices, each object counted once. */
+        PAYLOADS("vertex payloads"),
+        /** The arrays of the compact snapshot the graph keeps as the base of its next snapshot. */
+        SNAPSHOT("retained compact snapshot");
+
+        private final String description; // Name of the component in the report
+
+        Component(String description) {
+            this.description = description;
+        }
+    }
+
+    private final int header; // Size of an object header
+    private final int reference; // Size of a reference
+    private final long[] bytes = new long[Component.values().length]; // Estimated size of each component
+    private final long[] objects = new long[Component.values().length]; // Number of objects in each component
+    private final int vertexCount; // Number of vertices in the graph
+    private long edgeCount; // Number of directed edges in the vertex maps
+
+    /**
+     * Measures a weighted graph by walking its structures. Object sizes follow the HotSpot layout of the
+     * running JVM: a 12 byte header with compressed class pointers, 4 byte references with compressed oops,
+     * and sizes rounded up to 8 bytes. Hash tables are assumed to have grown by insertion, so their length is
+     * the smallest power of two that keeps them under the 0.75 load factor. The result is an estimate of the
+     * retained size, not a heap dump; payload types other than strings, boxed numbers and points count as
+     * objects without fields.
+     *
+     * @param adjacencyList the map of vertices and their neighbor lists
+     * @param vertices      the vertices by id
+     * @param snapshot      the snapshot the graph retains, or null
+     * @param <V>           the type of the vertex data
+     */
+    <V> MemoryFootprint(Map<Vertex<V>, List<Vertex<V>>> adjacencyList, List<Vertex<V>> vertices,
+                        CompactGraph<V> snapshot) {
+        header = vmOption("UseCompressedClassPointers", true) ? 12 : 16;
+        reference = vmOption("UseCompressedOops", true) ? 4 : 8;
+        vertexCount = vertices.size();
+
+        add(Component.ADJACENCY_MAP, 1, map(adjacencyList, adjacencyList.size()));
+        add(Component.ADJACENCY_MAP, adjacencyList.size(), (long) adjacencyList.size() * mapEntry(adjacencyList));
+
+        for (List<Vertex<V>> neighbors : adjacencyList.values()) {
+            if (neighbors instanceof LinkedList) { // List and one node per element
+                add(Component.NEIGHBOR_LISTS, 1 + neighbors.size(),
+                        object(8L + 2L * reference) + neighbors.size() * object(3L * reference));
+            } else { // Append-only list, its atomic array and the array inside
+                add(Component.NEIGHBOR_LISTS, 3, object(8L + reference) + object(reference)
+                        + array(reference, listCapacity(neighbors.size(), 4, true)));
+            }
+        }
+
+        Set<Object> payloads = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Vertex<V> vertex : vertices) {
+            Map<Vertex<V>, Double> adjacent = vertex.getAdjacentVertices();
+            int degree = adjacent.size();
+            edgeCount += degree;
+            add(Component.VERTEX_MAPS, 1 + degree, map(adjacent, degree) + degree * mapEntry(adjacent));
+            add(Component.BOXED_WEIGHTS, degree, degree * align(header + 8L));
+            add(Component.VERTICES, 1, vertexObject());
+            Object data = vertex.getData();
+            if (data != null && payloads.add(data))
+                add(Component.PAYLOADS, data instanceof String ? 2 : 1, payload(data));
+        }
+        if (vertices instanceof ArrayList) // List and its array
+            add(Component.VERTICES, 2, object(8L + reference) + array(reference, listCapacity(vertexCount, 10, false)));
+        else // Append-only list, its atomic array and the array inside
+            add(Component.VERTICES, 3, object(8L + reference) + object(reference)
+                    + array(reference, listCapacity(vertexCount, 16, true)));
+        if (snapshot != null)
+            add(Component.SNAPSHOT, 4, snapshot.estimatedBytes());
+    }
+
+    /**
+     * Reads a boolean option of the running JVM.
+     *
+     * @param name     the option name
+     * @param fallback the value to use if the option cannot be read
+     * @return the value of the option
+     */
+    private static boolean vmOption(String name, boolean fallback) {
+        try {
+            HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return bean == null ? fallback : Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException e) {
+            return fallback; // Not a HotSpot JVM, assume the default layout
+        }
+    }
+
+    /**
+     * Adds objects to a component.
+     *
+     * @param component the component
+     * @param count     the number of objects
+     * @param size      their total size in bytes
+     */
+    private void add(Component component, long count, long size) {
+        objects[component.ordinal()] += count;
+        bytes[component.ordinal()] += size;
+    }
+
+    /**
+     * Rounds a size up to the 8 byte object alignment.
+     *
+     * @param size the size in bytes
+     * @return the aligned size
+     */
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Returns the size of an object with the given bytes of fields.
+     *
+     * @param fields the size of the fields
+     * @return the object size
+     */
+    private long object(long fields) {
+        return align(header + fields);
+    }
+
+    /**
+     * Returns the size of an array.
+     *
+     * @param elementSize the size of each element
+     * @param length      the array length
+     * @return the array size
+     */
+    private long array(int elementSize, long length) {
+        return align(header + 4L + elementSize * length);
+    }
+
+    /**
+     * Returns the size of a hash map entry: its hash, key, value and next pointer, plus the links to the
+     * neighboring entries in a linked map.
+     *
+     * @param map the map holding the entry
+     * @return the entry size
+     */
+    private long mapEntry(Map<?, ?> map) {
+        return object(4L + (map instanceof LinkedHashMap ? 5L : 3L) * reference);
+    }
+
+    /**
+     * Returns the size of a hash map and its table, without the entries.
+     *
+     * @param map  the map
+     * @param size the number of entries
+     * @return the size of the map object and its table
+     */
+    private long map(Map<?, ?> map, int size) {
+        long table = size == 0 ? 0 : array(reference, tableCapacity(size)); // Tables are allocated on first insert
+        if (map instanceof ConcurrentHashMap)
+            return object(8L + 3L * 4 + 6L * reference) + table; // Counters, tables and views of a concurrent map
+        if (map instanceof LinkedHashMap) // Also the first and last entries and the access order flag
+            return object(4L * 4 + 1 + 6L * reference) + table;
+        return object(4L * 4 + 4L * reference) + table; // Size, modCount, threshold, load factor, table and views
+    }
+
+    /**
+     * Returns the length of a hash table that grew to hold the given number of entries.
+     *
+     * @param size the number of entries
+     * @return the table length
+     */
+    private static long tableCapacity(int size) {
+        long capacity = 16;
+        while (capacity * 3 / 4 < size) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the length of the backing array of a list that grew to hold the given number of elements.
+     *
+     * @param size     the number of elements
+     * @param initial  the initial array length
+     * @param doubling true if the length doubles when the array is full, false if it grows by half
+     * @return the array length
+     */
+    private static long listCapacity(int size, long initial, boolean doubling) {
+        long capacity = initial;
+        while (capacity < size) {
+            capacity += doubling ? capacity : capacity >> 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Returns the size of a vertex object: its data, id, map and dirty flag.
+     *
+     * @return the vertex size
+     */
+    private long vertexObject() {
+        return object(4L + 1L + 2L * reference);
+    }
+
+    /**
+     * Estimates the size of a vertex payload.
+     *
+     * @param data the payload
+     * @return the estimated size in bytes
+     */
+    private long payload(Object data) {
+        if (data instanceof String) {
+            String string = (String) data;
+            boolean latin1 = string.chars().allMatch(c -> c < 256);
+            return object(4L + 2 + reference) + array(latin1 ? 1 : 2, string.length()); // String and its bytes
+        }
+        if (data instanceof Long || data instanceof Double)
+            return object(8);
+        if (data instanceof Number || data instanceof Character)
+            return object(4);
+        if (data instanceof GraphGenerator.Point)
+            return object(16);
+        return object(0);
+    }
+
+    /**
+     * Returns the estimated size of a component.
+     *
+     * @param component the component
+     * @return the size in bytes
+     */
+    public long bytes(Component component) {
+        return bytes[component.ordinal()];
+    }
+
+    /**
+     * Returns the number of objects in a component.
+     *
+     * @param component the component
+     * @return the object count
+     */
+    public long objects(Component component) {
+        return objects[component.ordinal()];
+    }
+
+    /**
+     * Returns the estimated retained size of the whole graph.
+     *
+     * @return the size in bytes
+     */
+    public long totalBytes() {
+        long total = 0;
+        for (long size : bytes) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the estimated size of the edges, which are stored twice: in the neighbor lists and in the
+     * vertex maps with their boxed weights. The adjacency map is included since it only exists to find the
+     * neighbor lists.
+     *
+     * @return the size in bytes
+     */
+    public long edgeBytes() {
+        return bytes(Component.ADJACENCY_MAP) + bytes(Component.NEIGHBOR_LISTS) + bytes(Component.VERTEX_MAPS)
+                + bytes(Component.BOXED_WEIGHTS);
+    }
+
+    /**
+     * Returns the number of directed edges, each undirected edge counting once per direction.
+     *
+     * @return the edge count
+     */
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Projects the size of the edges in a compact snapshot: offsets, targets and weights arrays.
+     *
+     * @return the size in bytes
+     */
+    public long compactEdgeBytes() {
+        return array(4, vertexCount + 1L) + array(4, edgeCount) + array(8, edgeCount);
+    }
+
+    /**
+     * Projects the size of the graph held only as a compact snapshot, as built by CompactGraph.fromEdges or
+     * GraphImporter.readCompact: the edge arrays, the vertex table, and vertices with empty maps.
+     *
+     * @return the size in bytes
+     */
+    public long compactBytes() {
+        return compactEdgeBytes() + array(reference, vertexCount) + vertexCount * (vertexObject() + map(new LinkedHashMap<>(), 0))
+                + bytes(Component.PAYLOADS);
+    }
+
+    /**
+     * Projects the heap size of the graph mapped from a graph file: only the table of decoded vertices stays
+     * on the heap, while the edges are paged in from the file.
+     *
+     * @return the size in bytes
+     */
+    public long mappedHeapBytes() {
+        return array(reference, vertexCount);
+    }
+
+    /**
+     * Projects the size of the graph file without the encoded payloads, which is what a mapped graph pages
+     * in from disk.
+     *
+     * @return the size in bytes
+     */
+    public long mappedFileBytes() {
+        return 32 + align(4L * (vertexCount + 1)) + align(4L * edgeCount) + 8L * edgeCount + 8L * (vertexCount + 1);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        long total = totalBytes();
+        report.append(String.format("%d vertices, %d directed edges, %d byte headers, %d byte references%n",
+                vertexCount, edgeCount, header, reference));
+        for (Component component : Component.values()) {
+            report.append(String.format("  %-32s %,14d bytes %,12d objects %5.1f%%%n", component.description,
+                    bytes(component), objects(component), total == 0 ? 0.0 : 100.0 * bytes(component) / total));
+        }
+        report.append(String.format("  %-32s %,14d bytes%n", "total", total));
+        report.append(String.format("  %-32s %,14d bytes, %.1f per edge, %.1fx a compact snapshot%n", "edges",
+                edgeBytes(), edgeCount == 0 ? 0.0 : (double) edgeBytes() / edgeCount,
+                (double) edgeBytes() / compactEdgeBytes()));
+        report.append(String.format("  %-32s %,14d bytes%n", "projected compact snapshot", compactBytes()));
+        report.append(String.format("  %-32s %,14d bytes heap, %,d bytes file%n", "projected mapped file",
+                mappedHeapBytes(), mappedFileBytes()));
+        return report.toString();
+    }
+}
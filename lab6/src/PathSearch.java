@@ -0,0 +1,12 @@
+public interface PathSearch<V> {
+    /**
+     * Finds the shortest path between the source and target vertices.
+     * The returned result is owned by the search and is reused by its next call.
+     * Use getPath(target) and getDistance(target) on the result to read the path.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the result of the search
+     */
+    SearchResult<V> shortestPath(Vertex<V> source, Vertex<V> target);
+}
\ No newline at end of file
@@ -1,8 +1,10 @@
 public interface Search<V> {
     /**
      * Performs a search starting from the given vertex.
+     * The returned result is owned by the search and is reused by its next call.
      *
      * @param start the start vertex
+     * @return the result of the search
      */
-    void search(Vertex<V> start);
+    SearchResult<V> search(Vertex<V> start);
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+public class SearchMetrics {
+    private static final int SUB_BUCKET_BITS = 4; // Each power of two is split into 16 buckets, about 6% apart
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Number of buckets per power of two
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS; // Enough buckets for any long
+
+    private final AtomicLong searches = new AtomicLong(); // Number of recorded searches
+    private final AtomicLong settled = new AtomicLong(); // Vertices settled over all searches
+    private final AtomicLong relaxed = new AtomicLong(); // Edges scanned over all searches
+    private final AtomicLong pushes = new AtomicLong(); // Queue insertions over all searches
+    private final AtomicLong pops = new AtomicLong(); // Queue removals over all searches
+    private final AtomicLong decreases = new AtomicLong(); // Heap decrease-key operations over all searches
+    private final AtomicLong peakQueue = new AtomicLong(); // Largest queue size seen in any search
+    private final AtomicLong totalNanos = new AtomicLong(); // Wall time over all searches
+    private final AtomicLong maxNanos = new AtomicLong(); // Longest search
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS); // Number of searches in each bucket
+
+    /**
+     * Records one search. Only updates preallocated counters, so engines can record every search without
+     * creating garbage, and several engines on different threads can share the same metrics.
+     *
+     * @param nanos     the wall time of the search in nanoseconds
+     * @param settled   the number of vertices settled
+     * @param relaxed   the number of edges scanned
+     * @param pushes    the number of queue insertions
+     * @param pops      the number of queue removals
+     * @param decreases the number of decrease-key operations
+     * @param peakQueue the largest queue size during the search
+     */
+    void record(long nanos, long settled, long relaxed, long pushes, long pops, long decreases, long peakQueue) {
+        nanos = Math.max(0, nanos);
+        searches.incrementAndGet();
+        this.settled.addAndGet(settled);
+        this.relaxed.addAndGet(relaxed);
+        this.pushes.addAndGet(pushes);
+        this.pops.addAndGet(pops);
+        this.decreases.addAndGet(decreases);
+        raise(this.peakQueue, peakQueue);
+        totalNanos.addAndGet(nanos);
+        raise(maxNanos, nanos);
+        latencies.incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * Raises a counter to the given value if it is lower.
+     *
+     * @param counter the counter
+     * @param value   the new value
+     */
+    private static void raise(AtomicLong counter, long value) {
+        long current = counter.get();
+        while (value > current && !counter.compareAndSet(current, value)) {
+            current = counter.get();
+        }
+    }
+
+    /**
+     * Returns the bucket of a latency. Values below 16 get a bucket each, larger values share a bucket with
+     * the values that agree on their highest five bits, so each bucket is at most 1/16 of its values wide.
+     *
+     * @param nanos the latency, not negative
+     * @return the bucket index
+     */
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS; // Keep the highest five bits
+        return shift * SUB_BUCKETS + (int) (nanos >>> shift);
+    }
+
+    /**
+     * Returns the largest latency that falls into the given bucket.
+     *
+     * @param bucket the bucket index
+     * @return the upper bound of the bucket in nanoseconds
+     */
+    static long bucketLimit(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Returns the number of recorded searches.
+     *
+     * @return the search count
+     */
+    public long searchCount() {
+        return searches.get();
+    }
+
+    /**
+     * Returns the number of vertices settled over all searches.
+     *
+     * @return the settled vertex count
+     */
+    public long verticesSettled() {
+        return settled.get();
+    }
+
+    /**
+     * Returns the number of edges scanned over all searches.
+     *
+     * @return the relaxed edge count
+     */
+    public long edgesRelaxed() {
+        return relaxed.get();
+    }
+
+    /**
+     * Returns the number of queue insertions over all searches.
+     *
+     * @return the push count
+     */
+    public long heapPushes() {
+        return pushes.get();
+    }
+
+    /**
+     * Returns the number of queue removals over all searches.
+     *
+     * @return the pop count
+     */
+    public long heapPops() {
+        return pops.get();
+    }
+
+    /**
+     * Returns the number of decrease-key operations over all searches.
+     *
+     * @return the decrease-key count
+     */
+    public long decreaseKeys() {
+        return decreases.get();
+    }
+
+    /**
+     * Returns the largest queue size seen in any search.
+     *
+     * @return the peak queue size
+     */
+    public long peakQueueSize() {
+        return peakQueue.get();
+    }
+
+    /**
+     * Returns the total wall time of all searches.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long totalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * Returns the wall time of the longest search.
+     *
+     * @return the maximum time in nanoseconds
+     */
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean wall time of a search.
+     *
+     * @return the mean time in nanoseconds, or 0 if nothing was recorded
+     */
+    public double meanNanos() {
+        long count = searches.get();
+        return count == 0 ? 0.0 : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Returns the latency below which the given share of the searches fall. The value is the upper bound of
+     * its histogram bucket, at most 1/16 above the exact value, and never more than the maximum.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total += latencies.get(bucket);
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total)); // Searches at or below the result
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += latencies.get(bucket);
+            if (seen >= rank)
+                return Math.min(bucketLimit(bucket), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clears all counters and the histogram. Searches recorded at the same time may be partly kept.
+     */
+    public void reset() {
+        searches.set(0);
+        settled.set(0);
+        relaxed.set(0);
+        pushes.set(0);
+        pops.set(0);
+        decreases.set(0);
+        peakQueue.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            latencies.set(bucket, 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("searches=%d settled=%d relaxed=%d pushes=%d pops=%d decreases=%d peakQueue=%d"
+                        + " mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                searchCount(), verticesSettled(), edgesRelaxed(), heapPushes(), heapPops(), decreaseKeys(),
+                peakQueueSize(), meanNanos() / 1e3, percentile(50) / 1e3, percentile(99) / 1e3,
+                percentile(99.9) / 1e3, maxNanos() / 1e3);
+    }
+}
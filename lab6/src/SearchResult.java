@@ -0,0 +1,265 @@
+import java.io.PrintStream;
+import java.util.*;
+public class SearchResult<V> {
+    private CompactGraph<V> graph; // The graph the search ran on
+    private int source = -1; // Id of the start vertex
+    private int[] visitOrder = new int[0]; // Ids of the visited vertices in the order they were visited
+    private int visitCount; // Number of visited vertices
+    private double[] distances = new double[0]; // Distance of each vertex from the start vertex, infinity if unreached
+    private int[] predecessors = new int[0]; // Previous vertex on the path from the start vertex, or -1
+    private int[] touched = new int[0]; // Ids of the vertices with a finite distance, to reset them cheaply
+    private int touchedCount; // Number of touched vertices
+
+    /**
+     * Prepares the result for a new search. Arrays are only reallocated when the graph has grown,
+     * and only the entries written by the previous search are cleared.
+     *
+     * @param graph  the graph the search runs on
+     * @param source the id of the start vertex
+     */
+    void reset(CompactGraph<V> graph, int source) {
+        int vertexCount = graph.vertexCount();
+        if (distances.length < vertexCount) {
+            visitOrder = new int[vertexCount];
+            distances = new double[vertexCount];
+            predecessors = new int[vertexCount];
+            touched = new int[vertexCount];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY); // Initialize all distances to infinity
+            Arrays.fill(predecessors, -1); // No vertex has a predecessor yet
+        } else {
+            for (int i = 0; i < touchedCount; i++) {
+                distances[touched[i]] = Double.POSITIVE_INFINITY; // Clear the entries of the previous search
+                predecessors[touched[i]] = -1;
+            }
+        }
+        this.graph = graph;
+        this.source = source;
+        visitCount = 0;
+        touchedCount = 0;
+    }
+
+    /**
+     * Records a new distance and predecessor for the given vertex.
+     *
+     * @param vertex      the vertex id
+     * @param distance    the distance from the start vertex
+     * @param predecessor the previous vertex id on the path, or -1 for the start vertex
+     */
+    void reach(int vertex, double distance, int predecessor) {
+        if (distances[vertex] == Double.POSITIVE_INFINITY)
+            touched[touchedCount++] = vertex; // First time this search reaches the vertex
+        distances[vertex] = distance;
+        predecessors[vertex] = predecessor;
+    }
+
+    /**
+     * Appends the given vertex to the visit order.
+     *
+     * @param vertex the vertex id
+     */
+    void visit(int vertex) {
+        visitOrder[visitCount++] = vertex;
+    }
+
+    /**
+     * Records the distance and predecessor of a vertex reached for the first time by a parallel search.
+     * The caller must have claimed the vertex so that no other thread writes the same entry, and must
+     * add it to the visit order with placeVisited.
+     *
+     * @param vertex      the vertex id
+     * @param distance    the distance from the start vertex
+     * @param predecessor the previous vertex id on the path
+     */
+    void claim(int vertex, double distance, int predecessor) {
+        distances[vertex] = distance;
+        predecessors[vertex] = predecessor;
+    }
+
+    /**
+     * Copies vertices recorded with claim into the visit order at the given position. Every visited vertex
+     * of a parallel search is reached exactly once, so the same ids also fill the list of touched vertices.
+     *
+     * @param position the position in the visit order
+     * @param vertices the vertex ids
+     * @param count    the number of vertex ids to copy
+     */
+    void placeVisited(int position, int[] vertices, int count) {
+        System.arraycopy(vertices, 0, visitOrder, position, count);
+        System.arraycopy(vertices, 0, touched, position, count);
+    }
+
+    /**
+     * Sets the number of visited vertices after placeVisited filled the visit order.
+     *
+     * @param count the number of visited and touched vertices
+     */
+    void setVisitCount(int count) {
+        visitCount = count;
+        touchedCount = count;
+    }
+
+    /**
+     * Returns the visit order array. Only the first visitCount() entries are valid.
+     *
+     * @return the visit order array
+     */
+    int[] visitOrderArray() {
+        return visitOrder;
+    }
+
+    /**
+     * Returns the graph the search ran on.
+     *
+     * @return the graph
+     */
+    public CompactGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the start vertex of the search.
+     *
+     * @return the start vertex
+     */
+    public Vertex<V> getSource() {
+        return graph.getVertex(source);
+    }
+
+    /**
+     * Returns the number of vertices visited by the search.
+     *
+     * @return the number of visited vertices
+     */
+    public int visitCount() {
+        return visitCount;
+    }
+
+    /**
+     * Returns the id of the vertex visited at the given position.
+     *
+     * @param position the position in the visit order
+     * @return the vertex id
+     */
+    public int visited(int position) {
+        if (position < 0 || position >= visitCount)
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + visitCount + " visited vertices");
+        return visitOrder[position];
+    }
+
+    /**
+     * Returns the visited vertices in the order they were visited.
+     *
+     * @return the list of visited vertices
+     */
+    public List<Vertex<V>> getVisitOrder() {
+        List<Vertex<V>> order = new ArrayList<>(visitCount);
+        for (int i = 0; i < visitCount; i++) {
+            order.add(graph.getVertex(visitOrder[i]));
+        }
+        return order;
+    }
+
+    /**
+     * Returns the distance of the vertex with the given id from the start vertex.
+     *
+     * @param vertex the vertex id
+     * @return the distance, or infinity if the vertex was not reached
+     */
+    public double distance(int vertex) {
+        return distances[vertex];
+    }
+
+    /**
+     * Returns the distance of the given vertex from the start vertex.
+     *
+     * @param vertex the vertex
+     * @return the distance, or infinity if the vertex was not reached
+     */
+    public double getDistance(Vertex<V> vertex) {
+        return distances[graph.indexOf(vertex)];
+    }
+
+    /**
+     * Returns the depth of the vertex with the given id in a breadth-first search.
+     *
+     * @param vertex the vertex id
+     * @return the number of edges from the start vertex, or -1 if the vertex was not reached
+     */
+    public int depth(int vertex) {
+        double distance = distances[vertex];
+        return distance == Double.POSITIVE_INFINITY ? -1 : (int) distance;
+    }
+
+    /**
+     * Returns the depth of every vertex in a breadth-first search.
+     *
+     * @return the depths by vertex id, -1 for vertices that were not reached
+     */
+    public int[] getDepths() {
+        int[] depths = new int[graph.vertexCount()];
+        Arrays.fill(depths, -1);
+        for (int i = 0; i < touchedCount; i++) {
+            depths[touched[i]] = (int) distances[touched[i]];
+        }
+        return depths;
+    }
+
+    /**
+     * Returns the previous vertex on the path from the start vertex to the vertex with the given id.
+     *
+     * @param vertex the vertex id
+     * @return the predecessor id, or -1 for the start vertex and unreached vertices
+     */
+    public int predecessor(int vertex) {
+        return predecessors[vertex];
+    }
+
+    /**
+     * Checks if the search found a path from the start vertex to the given vertex.
+     *
+     * @param vertex the vertex
+     * @return true if there is a path, false otherwise
+     */
+    public boolean hasPathTo(Vertex<V> vertex) {
+        return getDistance(vertex) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the path from the start vertex to the given vertex by following the predecessors.
+     *
+     * @param vertex the end vertex of the path
+     * @return the vertices on the path, starting with the start vertex, or an empty list if there is no path
+     */
+    public List<Vertex<V>> getPath(Vertex<V> vertex) {
+        if (!hasPathTo(vertex))
+            return Collections.emptyList();
+        LinkedList<Vertex<V>> path = new LinkedList<>();
+        for (int id = graph.indexOf(vertex); id != -1; id = predecessors[id]) {
+            path.addFirst(graph.getVertex(id)); // Walk back towards the start vertex
+        }
+        return path;
+    }
+
+    /**
+     * Prints the visited vertices in the order they were visited, separated by spaces.
+     *
+     * @param out the stream to print to
+     */
+    public void printVisitOrder(PrintStream out) {
+        for (int i = 0; i < visitCount; i++) {
+            out.print(graph.getVertex(visitOrder[i]).getData() + " ");
+        }
+        out.println();
+    }
+
+    /**
+     * Prints the distance of every vertex in the graph from the start vertex, one vertex per line.
+     *
+     * @param out the stream to print to
+     */
+    public void printDistances(PrintStream out) {
+        for (int id = 0; id < graph.vertexCount(); id++) {
+            out.println("Vertex " + graph.getVertex(id).getData() + ": " + distances[id]);
+        }
+    }
+}
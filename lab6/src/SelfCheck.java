@@ -0,0 +1,380 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+public class SelfCheck {
+    private static final int SOURCES = 6; // Source vertices checked per graph
+    private static final int LANDMARKS = 8; // Landmarks of the ALT index
+    private static final int PATHS = 3; // Paths asked of the k shortest paths search
+    private static final double TOLERANCE = 1e-9; // Relative error allowed between sums taken in another order
+
+    private final ForkJoinPool pool = new ForkJoinPool(4); // More workers than the sandbox has cores, to mix the threads
+    private final SplittableRandom random; // Picks the sources and targets
+    private int checks; // Comparisons made
+    private int failures; // Comparisons that failed
+
+    /**
+     * Constructs a new self check.
+     *
+     * @param seed the seed of the generated graphs and of the picked vertices
+     */
+    private SelfCheck(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Checks every search engine against a plain Dijkstra's algorithm on generated graphs, and checks that
+     * graph files and landmark indexes read back what was written. Prints every failure and a summary, and
+     * exits with status 1 if anything failed, so it can gate a build that has no test framework.
+     *
+     * @param args an optional seed, 42 by default
+     * @throws IOException if a temporary file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        SelfCheck check = new SelfCheck(seed);
+        GraphGenerator generator = new GraphGenerator(seed, 1.0, 100.0, check.pool);
+        try {
+            check.engines("grid", generator.grid(40, 40, 0.2), GraphGenerator.EUCLIDEAN);
+            check.engines("randomGeometric", generator.randomGeometric(1500, 0.05), GraphGenerator.EUCLIDEAN);
+            check.engines("erdosRenyi", generator.erdosRenyi(2000, 5000), (from, to) -> 0.0);
+            check.engines("barabasiAlbert", generator.barabasiAlbert(2000, 3), (from, to) -> 0.0);
+            check.engines("rmat", generator.rmat(11, 4), (from, to) -> 0.0);
+            check.engines("weightedGraph", WeightedGraph.fromCompact(generator.erdosRenyi(500, 1500)));
+            check.graphFile("erdosRenyi", generator.erdosRenyi(1000, 3000), GraphFile.INTEGERS);
+            check.landmarkIndex("grid", generator.grid(30, 30, 0.1));
+        } finally {
+            check.pool.shutdown();
+        }
+        System.out.println(check.checks + " checks, " + check.failures + " failed");
+        if (check.failures > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Compares the distances of every engine with the reference on one compact graph. Breadth-first search
+     * is compared with the reference on unit weights, since its depths count edges.
+     *
+     * @param name      the name of the graph, used in failure messages
+     * @param graph     the graph
+     * @param heuristic an admissible heuristic for A*
+     * @param <V>       the type of the vertex data
+     */
+    private <V> void engines(String name, CompactGraph<V> graph, Heuristic<V> heuristic) {
+        List<Vertex<V>> sources = new ArrayList<>();
+        for (int i = 0; i < SOURCES; i++) {
+            sources.add(graph.getVertex(random.nextInt(graph.vertexCount())));
+        }
+        DijkstraSearch<V> dijkstra = new DijkstraSearch<>(graph);
+        DeltaSteppingSearch<V> deltaStepping = new DeltaSteppingSearch<>(graph);
+        DeltaSteppingSearch<V> narrowBuckets = new DeltaSteppingSearch<>(graph, 5.0, pool);
+        BidirectionalDijkstraSearch<V> bidirectional = new BidirectionalDijkstraSearch<>(graph);
+        AStarSearch<V> aStar = new AStarSearch<>(graph, heuristic);
+        ALTSearch<V> alt = new ALTSearch<>(LandmarkIndex.build(graph, LANDMARKS));
+        ContractionHierarchySearch<V> hierarchy = new ContractionHierarchySearch<>(ContractionHierarchy.build(graph));
+        KShortestPaths<V> kShortest = new KShortestPaths<>(graph, pool);
+        double[][] batch = new BatchSearch<>(graph, pool).distances(sources);
+
+        for (int i = 0; i < sources.size(); i++) {
+            Vertex<V> source = sources.get(i);
+            double[] expected = reference(graph, graph.indexOf(source), false);
+            double[] hops = reference(graph, graph.indexOf(source), true);
+            distances(name + " Dijkstra", graph, dijkstra.search(source), expected);
+            distances(name + " delta-stepping", graph, deltaStepping.search(source), expected);
+            distances(name + " delta-stepping 5.0", graph, narrowBuckets.search(source), expected);
+            distances(name + " A* search", graph, aStar.search(source), expected);
+            check(name + " batch row " + i, close(batch[i], expected));
+            for (BreadthFirstSearch.Mode mode : BreadthFirstSearch.Mode.values()) {
+                SearchResult<V> result = new BreadthFirstSearch<>(graph, mode, pool).search(source);
+                for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+                    int depth = hops[vertex] == Double.POSITIVE_INFINITY ? -1 : (int) hops[vertex];
+                    if (!check(name + " BFS " + mode + " depth of " + vertex, result.depth(vertex) == depth))
+                        break;
+                }
+            }
+
+            Vertex<V> target = graph.getVertex(random.nextInt(graph.vertexCount()));
+            double distance = expected[graph.indexOf(target)];
+            path(name + " Dijkstra", graph, dijkstra.shortestPath(source, target), target, distance);
+            path(name + " bidirectional", graph, bidirectional.shortestPath(source, target), target, distance);
+            path(name + " A*", graph, aStar.shortestPath(source, target), target, distance);
+            path(name + " ALT", graph, alt.shortestPath(source, target), target, distance);
+            check(name + " contraction hierarchy", close(hierarchy.shortestPath(source, target).getDistance(target), distance));
+            kShortest(name, graph, kShortest.shortestPaths(source, target, PATHS), distance);
+        }
+    }
+
+    /**
+     * Compares the engines built on a weighted graph, and its own Dijkstra method, with the reference on
+     * the snapshot of the graph.
+     *
+     * @param name  the name of the graph, used in failure messages
+     * @param graph the weighted graph
+     * @param <V>   the type of the vertex data
+     */
+    private <V> void engines(String name, WeightedGraph<V> graph) {
+        CompactGraph<V> snapshot = graph.freeze();
+        for (int i = 0; i < SOURCES; i++) {
+            Vertex<V> source = graph.getVertex(random.nextInt(graph.vertexCount()));
+            double[] expected = reference(snapshot, source.getId(), false);
+            distances(name + " Dijkstra", snapshot, new DijkstraSearch<>(graph).search(source), expected);
+            distances(name + " delta-stepping", snapshot, new DeltaSteppingSearch<>(graph).search(source), expected);
+            Map<Vertex<V>, Double> legacy = graph.Dijkstra(source);
+            for (int vertex = 0; vertex < snapshot.vertexCount(); vertex++) {
+                Double distance = legacy.get(graph.getVertex(vertex));
+                double actual = distance != null ? distance : Double.POSITIVE_INFINITY;
+                if (!check(name + " WeightedGraph.Dijkstra to " + vertex, close(actual, expected[vertex])))
+                    break;
+            }
+            Vertex<V> target = graph.getVertex(random.nextInt(graph.vertexCount()));
+            double distance = expected[target.getId()];
+            path(name + " bidirectional", snapshot, new BidirectionalDijkstraSearch<>(graph).shortestPath(source, target),
+                    target, distance);
+            kShortest(name, snapshot, new KShortestPaths<>(graph).shortestPaths(source, target, PATHS), distance);
+        }
+    }
+
+    /**
+     * Writes a graph file, maps it back and checks that the mapped graph has the same edges and distances.
+     *
+     * @param name  the name of the graph, used in failure messages
+     * @param graph the graph
+     * @param codec the codec for the vertex data
+     * @param <V>   the type of the vertex data
+     * @throws IOException if the file cannot be written or read
+     */
+    private <V> void graphFile(String name, CompactGraph<V> graph, GraphFile.Codec<V> codec) throws IOException {
+        Path file = Files.createTempFile("selfcheck", ".graph");
+        try {
+            GraphFile.write(graph, file, codec);
+            CompactGraph<V> mapped = GraphFile.map(file, codec);
+            check(name + " file vertex count", mapped.vertexCount() == graph.vertexCount());
+            check(name + " file edge count", mapped.edgeCount() == graph.edgeCount());
+            for (int vertex = 0; vertex <= graph.vertexCount(); vertex++) {
+                if (!check(name + " file offset of " + vertex, mapped.offset(vertex) == graph.offset(vertex)))
+                    return;
+            }
+            for (int edge = 0; edge < graph.edgeCount(); edge++) {
+                if (!check(name + " file edge " + edge, mapped.target(edge) == graph.target(edge)
+                        && mapped.weight(edge) == graph.weight(edge)))
+                    return;
+            }
+            for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+                if (!check(name + " file data of " + vertex,
+                        Objects.equals(mapped.getVertex(vertex).getData(), graph.getVertex(vertex).getData())))
+                    return;
+            }
+            int source = random.nextInt(graph.vertexCount());
+            distances(name + " file Dijkstra", mapped, new DijkstraSearch<>(mapped).search(mapped.getVertex(source)),
+                    reference(graph, source, false));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Saves a landmark index, loads it back and checks that it holds the same landmarks and bounds and that
+     * ALT on the loaded index still finds shortest paths.
+     *
+     * @param name  the name of the graph, used in failure messages
+     * @param graph the graph
+     * @param <V>   the type of the vertex data
+     * @throws IOException if the file cannot be written or read
+     */
+    private <V> void landmarkIndex(String name, CompactGraph<V> graph) throws IOException {
+        LandmarkIndex<V> index = LandmarkIndex.build(graph, LANDMARKS);
+        Path file = Files.createTempFile("selfcheck", ".landmarks");
+        try {
+            index.save(file);
+            LandmarkIndex<V> loaded = LandmarkIndex.load(graph, file);
+            check(name + " landmark count", loaded.landmarkCount() == index.landmarkCount());
+            for (int i = 0; i < Math.min(index.landmarkCount(), loaded.landmarkCount()); i++) {
+                check(name + " landmark " + i, loaded.landmark(i) == index.landmark(i));
+            }
+            for (int i = 0; i < SOURCES; i++) {
+                int vertex = random.nextInt(graph.vertexCount());
+                int target = random.nextInt(graph.vertexCount());
+                check(name + " landmark bound " + vertex + "-" + target,
+                        loaded.lowerBound(vertex, target) == index.lowerBound(vertex, target));
+                path(name + " loaded ALT", graph, new ALTSearch<>(loaded).shortestPath(graph.getVertex(vertex),
+                        graph.getVertex(target)), graph.getVertex(target), reference(graph, vertex, false)[target]);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Computes the distances from a source with a textbook Dijkstra's algorithm on a priority queue with
+     * lazy deletion, sharing no code with the engines.
+     *
+     * @param graph  the graph
+     * @param source the source vertex id
+     * @param unit   true to count every edge as 1, as breadth-first search does
+     * @return the distances by vertex id, infinity for unreachable vertices
+     */
+    private static double[] reference(CompactGraph<?> graph, int source, boolean unit) {
+        double[] distances = new double[graph.vertexCount()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        distances[source] = 0.0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>(Comparator.comparingDouble((double[] entry) -> entry[0]));
+        queue.add(new double[]{0.0, source});
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int vertex = (int) entry[1];
+            if (entry[0] > distances[vertex])
+                continue; // Already settled with a shorter distance
+            for (int edge = graph.offset(vertex); edge < graph.offset(vertex + 1); edge++) {
+                int neighbor = graph.target(edge);
+                double distance = entry[0] + (unit ? 1.0 : graph.weight(edge));
+                if (distance < distances[neighbor]) {
+                    distances[neighbor] = distance;
+                    queue.add(new double[]{distance, neighbor});
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Checks the distance of every vertex in a search result, and that the path to each reached vertex
+     * follows edges of the graph and adds up to its distance.
+     *
+     * @param name     the engine and graph, used in failure messages
+     * @param graph    the graph
+     * @param result   the search result
+     * @param expected the reference distances
+     * @param <V>      the type of the vertex data
+     */
+    private <V> void distances(String name, CompactGraph<V> graph, SearchResult<V> result, double[] expected) {
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+            if (!check(name + " distance to " + vertex, close(result.distance(vertex), expected[vertex])))
+                return;
+        }
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex += Math.max(1, graph.vertexCount() / 64)) {
+            path(name, graph, result, graph.getVertex(vertex), expected[vertex]);
+        }
+    }
+
+    /**
+     * Checks the distance of a target in a search result and the path its predecessors lead back along.
+     *
+     * @param name     the engine and graph, used in failure messages
+     * @param graph    the graph
+     * @param result   the search result
+     * @param target   the target vertex
+     * @param expected the reference distance of the target
+     * @param <V>      the type of the vertex data
+     */
+    private <V> void path(String name, CompactGraph<V> graph, SearchResult<V> result, Vertex<V> target,
+                          double expected) {
+        if (!check(name + " distance to " + target.getId(), close(result.getDistance(target), expected)))
+            return;
+        if (expected == Double.POSITIVE_INFINITY)
+            return;
+        LinkedList<Vertex<V>> path = new LinkedList<>();
+        int vertex = graph.indexOf(target);
+        while (vertex != -1 && path.size() <= graph.vertexCount()) { // Walked by hand, since getPath would follow a cycle forever
+            path.addFirst(graph.getVertex(vertex));
+            vertex = result.predecessor(vertex);
+        }
+        check(name + " path to " + target.getId(), path.getFirst() == result.getSource()
+                && close(length(graph, path), expected));
+    }
+
+    /**
+     * Checks the paths of a k shortest paths query: the first one is a shortest path, the costs never
+     * decrease, and each cost is the length of its path.
+     *
+     * @param name     the graph, used in failure messages
+     * @param graph    the graph
+     * @param paths    the paths found
+     * @param expected the reference distance between the ends
+     * @param <V>      the type of the vertex data
+     */
+    private <V> void kShortest(String name, CompactGraph<V> graph, List<KShortestPaths.Path<V>> paths,
+                               double expected) {
+        if (expected == Double.POSITIVE_INFINITY) {
+            check(name + " k shortest paths to an unreachable target", paths.isEmpty());
+            return;
+        }
+        if (!check(name + " k shortest paths, first path", !paths.isEmpty() && close(paths.get(0).getCost(), expected)))
+            return;
+        for (int i = 0; i < paths.size(); i++) {
+            KShortestPaths.Path<V> path = paths.get(i);
+            check(name + " k shortest path " + i + " length", close(length(graph, path.getVertices()), path.getCost()));
+            if (i > 0)
+                check(name + " k shortest path " + i + " order", path.getCost() >= paths.get(i - 1).getCost() * (1 - TOLERANCE));
+        }
+    }
+
+    /**
+     * Adds up the weights along a path, taking the lightest edge between each pair of vertices.
+     *
+     * @param graph the graph
+     * @param path  the vertices of the path
+     * @param <V>   the type of the vertex data
+     * @return the length, or NaN if two consecutive vertices are not joined by an edge
+     */
+    private static <V> double length(CompactGraph<V> graph, List<Vertex<V>> path) {
+        double length = 0.0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int vertex = graph.indexOf(path.get(i));
+            int next = graph.indexOf(path.get(i + 1));
+            double weight = Double.NaN;
+            for (int edge = graph.offset(vertex); edge < graph.offset(vertex + 1); edge++) {
+                if (graph.target(edge) == next && !(graph.weight(edge) >= weight))
+                    weight = graph.weight(edge);
+            }
+            length += weight;
+        }
+        return length;
+    }
+
+    /**
+     * Compares two distances, allowing for rounding when the same path is added up in another order.
+     *
+     * @param actual   the distance found by an engine
+     * @param expected the reference distance
+     * @return true if the distances match
+     */
+    private static boolean close(double actual, double expected) {
+        if (expected == Double.POSITIVE_INFINITY || actual == Double.POSITIVE_INFINITY)
+            return actual == expected;
+        return Math.abs(actual - expected) <= TOLERANCE * Math.max(1.0, expected);
+    }
+
+    /**
+     * Compares two rows of distances entry by entry.
+     *
+     * @param actual   the distances found by an engine
+     * @param expected the reference distances
+     * @return true if every entry matches
+     */
+    private static boolean close(double[] actual, double[] expected) {
+        if (actual.length != expected.length)
+            return false;
+        for (int i = 0; i < actual.length; i++) {
+            if (!close(actual[i], expected[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts one comparison and prints it if it failed.
+     *
+     * @param description what was compared
+     * @param passed      the outcome
+     * @return the outcome
+     */
+    private boolean check(String description, boolean passed) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + description);
+        }
+        return passed;
+    }
+}
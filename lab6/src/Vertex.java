@@ -1,8 +1,11 @@
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 public class Vertex<V> {
     private V data; // The data associated with the vertex
+    private int id = -1; // Dense id assigned by the graph, or -1 if the vertex is not in a graph
     private Map<Vertex<V>, Double> adjacentVertices; // Map of adjacent vertices and their weights
+    private boolean dirty; // Whether the edges changed since the graph last took a snapshot
 
     /**
      * Constructs a new vertex with the given data.
@@ -11,7 +14,7 @@ public class Vertex<V> {
      */
     public Vertex(V data) {
         this.data = data;
-        this.adjacentVertices = new HashMap<>(); // Initialize the map of adjacent vertices
+        this.adjacentVertices = new LinkedHashMap<>(); // Insertion order keeps traversals deterministic
     }
 
     /**
@@ -24,6 +27,33 @@ public class Vertex<V> {
         adjacentVertices.put(destination, weight); // Add the adjacent vertex with the weight to the map
     }
 
+    /**
+     * Marks the edges of the vertex as changed since the last snapshot of its graph.
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Checks if the edges of the vertex changed since the last snapshot of its graph, and clears the mark.
+     *
+     * @return true if the edges changed, false otherwise
+     */
+    boolean clearDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    /**
+     * Replaces the map of adjacent vertices with a concurrent map holding the same entries.
+     * Called by a concurrent graph when the vertex is added, so that edges can change while other
+     * threads iterate over them.
+     */
+    void useConcurrentMap() {
+        adjacentVertices = new ConcurrentHashMap<>(adjacentVertices);
+    }
+
     /**
      * Returns the data associated with the vertex.
      *
@@ -33,6 +63,24 @@ public class Vertex<V> {
         return data;
     }
 
+    /**
+     * Returns the dense id of the vertex within its graph. Ids run from 0 to the number of vertices minus one.
+     *
+     * @return the id of the vertex, or -1 if the vertex has not been added to a graph
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the dense id of the vertex. Called by the graph the vertex is added to.
+     *
+     * @param id the id of the vertex
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns the map of adjacent vertices and their weights.
      *
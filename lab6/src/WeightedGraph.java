@@ -1,23 +1,132 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 public class WeightedGraph<V> {
+    private static final int STRIPE_COUNT = 64; // Number of locks guarding the edges of a concurrent graph
+    private static final int STRIPE_SHIFT = 6; // Each stripe covers ranges of 64 consecutive vertex ids
+
     private Map<Vertex<V>, List<Vertex<V>>> adjacencyList; // Map of vertices and their adjacent vertices
+    private List<Vertex<V>> vertices; // Vertices by id
+    private volatile CompactGraph<V> frozen; // Compact snapshot of the graph, or null if the graph changed since the last freeze
+    private volatile CompactGraph<V> generation; // Latest snapshot built, kept after changes as the base of the next one
+    private final AtomicLong version = new AtomicLong(); // Number of changes made to the graph
+    private final AtomicBoolean refreshing = new AtomicBoolean(); // True while a background rebuild is queued
+    private final ThreadLocal<long[]> written = ThreadLocal.withInitial(() -> new long[1]); // Last version each thread wrote, holds no graph
+    private volatile boolean staleReads; // True if queries may miss the calling thread's own recent writes
+    private final ReentrantLock vertexLock; // Serializes id assignment in a concurrent graph, or null
+    private final ReentrantLock[] stripes; // Locks over vertex id ranges for edge changes in a concurrent graph, or null
+    private final AtomicReference<DijkstraSearch<V>> idleSearch = new AtomicReference<>(); // Engine kept between calls
 
     /**
-     * Constructs a new weighted graph.
+     * Constructs a new weighted graph for use by a single thread.
      */
     public WeightedGraph() {
-        adjacencyList = new HashMap<>(); // Initialize the adjacency list
+        this(false);
+    }
+
+    /**
+     * Constructs a new weighted graph. A concurrent graph can be changed by several threads while others
+     * read it. Edge changes lock the stripes of both endpoints, picked by vertex id range, so writers on
+     * different parts of the graph do not block each other. Reads take no locks. hasEdge and getNeighbors
+     * look at the live edges, where the two directions of an edge are added or removed one after the other,
+     * so a reader may briefly see an edge from one end only. Searches run on snapshots, which are built
+     * while holding every lock and always contain both directions of every edge; latestSnapshot explains
+     * how far behind the writers they may be. The edges of each vertex in a concurrent graph are kept in
+     * hash order rather than insertion order.
+     *
+     * @param concurrent true to allow concurrent changes and reads, false for a single thread
+     */
+    public WeightedGraph(boolean concurrent) {
+        if (concurrent) {
+            adjacencyList = new ConcurrentHashMap<>(); // Initialize the adjacency list
+            vertices = new AppendOnlyList<>(16); // Initialize the id lookup table
+            vertexLock = new ReentrantLock();
+            stripes = new ReentrantLock[STRIPE_COUNT];
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+        } else {
+            adjacencyList = new LinkedHashMap<>(); // Initialize the adjacency list in insertion order
+            vertices = new ArrayList<>(); // Initialize the id lookup table
+            vertexLock = null;
+            stripes = null;
+        }
+    }
+
+    /**
+     * Checks if the graph allows concurrent changes and reads.
+     *
+     * @return true if the graph is concurrent, false otherwise
+     */
+    public boolean isConcurrent() {
+        return stripes != null;
     }
 
     /**
-     * Adds a vertex to the graph.
+     * Builds a weighted graph with the same vertex data and edges as a compact graph, such as one that was
+     * generated, imported or mapped from a file. The vertices are new, with the same ids as in the compact
+     * graph, and the edges are added in bulk by id.
+     *
+     * @param compactGraph the compact graph to copy, with every edge present in both directions
+     * @param <V>          the type of the vertex data
+     * @return the weighted graph
+     */
+    public static <V> WeightedGraph<V> fromCompact(CompactGraph<V> compactGraph) {
+        WeightedGraph<V> graph = new WeightedGraph<>();
+        for (int id = 0; id < compactGraph.vertexCount(); id++) {
+            graph.addVertex(new Vertex<>(compactGraph.getVertex(id).getData()));
+        }
+        int count = 0;
+        int[] sources = new int[compactGraph.edgeCount()];
+        int[] targets = new int[compactGraph.edgeCount()];
+        double[] weights = new double[compactGraph.edgeCount()];
+        for (int vertex = 0; vertex < compactGraph.vertexCount(); vertex++) {
+            for (int edge = compactGraph.offset(vertex); edge < compactGraph.offset(vertex + 1); edge++) {
+                if (compactGraph.target(edge) < vertex)
+                    continue; // Added from the other end, since addEdge stores both directions
+                sources[count] = vertex;
+                targets[count] = compactGraph.target(edge);
+                weights[count] = compactGraph.weight(edge);
+                count++;
+            }
+        }
+        graph.addEdges(sources, targets, weights, count);
+        return graph;
+    }
+
+    /**
+     * Adds a vertex to the graph and assigns it the next dense id.
+     * A vertex can belong to only one graph.
      *
      * @param vertex the vertex to add
      */
     public void addVertex(Vertex<V> vertex) {
-        // Add the vertex to the adjacency list
-        // with an empty list of adjacent vertices
-        adjacencyList.put(vertex, new LinkedList<>());
+        if (vertexLock != null)
+            vertexLock.lock(); // Only one thread at a time assigns ids
+        try {
+            if (!adjacencyList.containsKey(vertex)) {
+                if (vertex.getId() >= 0)
+                    throw new IllegalArgumentException("Vertex " + vertex + " already belongs to another graph");
+                if (isConcurrent())
+                    vertex.useConcurrentMap(); // Let edges be added while other threads read them
+                vertex.setId(vertices.size()); // Assign the next dense id
+                vertices.add(vertex); // Register the vertex in the id lookup table
+            }
+
+            // Add the vertex to the adjacency list
+            // with an empty list of adjacent vertices
+            adjacencyList.put(vertex, isConcurrent() ? new AppendOnlyList<>(4) : new LinkedList<>());
+            wrote(version.incrementAndGet());
+            frozen = null; // The compact snapshot is out of date
+        } finally {
+            if (vertexLock != null)
+                vertexLock.unlock();
+        }
     }
 
     /**
@@ -31,11 +140,159 @@ public class WeightedGraph<V> {
         validateVertex(source); // Check if the source vertex exists in the graph
         validateVertex(destination); // Check if the destination vertex exists in the graph
 
-        source.addAdjacentVertex(destination, weight); // Add the adjacent vertex with the weight to the source vertex
-        destination.addAdjacentVertex(source, weight); // Add the adjacent vertex with the weight to the destination vertex
+        lockEdge(source, destination);
+        try {
+            source.addAdjacentVertex(destination, weight); // Add the adjacent vertex with the weight to the source vertex
+            destination.addAdjacentVertex(source, weight); // Add the adjacent vertex with the weight to the destination vertex
 
-        adjacencyList.get(source).add(destination); // Add the destination vertex to the source vertex's list of adjacent vertices
-        adjacencyList.get(destination).add(source); // Add the source vertex to the destination vertex's list of adjacent vertices
+            adjacencyList.get(source).add(destination); // Add the destination vertex to the source vertex's list of adjacent vertices
+            adjacencyList.get(destination).add(source); // Add the source vertex to the destination vertex's list of adjacent vertices
+            changed(source, destination);
+        } finally {
+            unlockEdge(source, destination);
+        }
+    }
+
+    /**
+     * Records a change to the edges between two vertices. Called while holding the stripes of both vertices.
+     *
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     */
+    private void changed(Vertex<V> source, Vertex<V> destination) {
+        source.markDirty(); // The next snapshot has to read the edges of both vertices again
+        destination.markDirty();
+        wrote(version.incrementAndGet());
+        frozen = null; // The compact snapshot is out of date
+    }
+
+    /**
+     * Records the version of a change made by the calling thread, so that its own queries see it.
+     *
+     * @param newVersion the version of the graph after the change
+     */
+    private void wrote(long newVersion) {
+        if (isConcurrent())
+            written.get()[0] = newVersion; // Versions only grow, and each thread sees its own writes in order
+    }
+
+    /**
+     * Adds many edges at once by vertex id, as a bulk loader does. The ids come from the graph itself,
+     * so the vertices are looked up by id instead of being validated one edge at a time. A concurrent
+     * graph takes all edge locks once for the whole batch, so other writers wait until it is added.
+     *
+     * @param sources the source vertex id of each edge
+     * @param targets the target vertex id of each edge
+     * @param weights the weight of each edge
+     * @param count   the number of edges
+     */
+    void addEdges(int[] sources, int[] targets, double[] weights, int count) {
+        GraphEvents.Mutation event = new GraphEvents.Mutation();
+        event.begin();
+        long newVersion;
+        lockAll();
+        try {
+            int vertexCount = vertices.size();
+            List<List<Vertex<V>>> lists = new ArrayList<>(vertexCount); // Lists of adjacent vertices by id
+            for (int id = 0; id < vertexCount; id++) {
+                lists.add(adjacencyList.get(vertices.get(id)));
+            }
+
+            for (int i = 0; i < count; i++) { // Check the whole batch first, so that it is added entirely or not at all
+                if (sources[i] < 0 || sources[i] >= vertexCount || targets[i] < 0 || targets[i] >= vertexCount)
+                    throw new IllegalArgumentException("Edge " + sources[i] + "-" + targets[i] + " has an unknown vertex");
+            }
+
+            for (int i = 0; i < count; i++) {
+                Vertex<V> source = vertices.get(sources[i]);
+                Vertex<V> destination = vertices.get(targets[i]);
+                source.addAdjacentVertex(destination, weights[i]);
+                destination.addAdjacentVertex(source, weights[i]);
+                lists.get(sources[i]).add(destination);
+                lists.get(targets[i]).add(source);
+                source.markDirty();
+                destination.markDirty();
+            }
+            newVersion = version.addAndGet(count);
+            wrote(newVersion);
+            frozen = null; // The compact snapshot is out of date
+        } finally {
+            unlockAll();
+        }
+        if (event.shouldCommit()) {
+            event.operation = "addEdges";
+            event.edgeCount = count;
+            event.version = newVersion;
+            event.commit();
+        }
+    }
+
+    /**
+     * Locks the stripes of both endpoints of an edge in a concurrent graph. The stripes are always taken
+     * in increasing order, so two writers can never wait for each other.
+     *
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     */
+    private void lockEdge(Vertex<V> source, Vertex<V> destination) {
+        if (stripes == null)
+            return;
+        int first = stripe(source);
+        int second = stripe(destination);
+        stripes[Math.min(first, second)].lock();
+        if (first != second)
+            stripes[Math.max(first, second)].lock();
+    }
+
+    /**
+     * Unlocks the stripes taken by lockEdge.
+     *
+     * @param source      the source vertex
+     * @param destination the destination vertex
+     */
+    private void unlockEdge(Vertex<V> source, Vertex<V> destination) {
+        if (stripes == null)
+            return;
+        int first = stripe(source);
+        int second = stripe(destination);
+        if (first != second)
+            stripes[Math.max(first, second)].unlock();
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    /**
+     * Takes every lock of a concurrent graph, so that no vertex or edge changes until unlockAll.
+     * The locks are taken in a fixed order, the vertex lock first and then the stripes in increasing order.
+     */
+    private void lockAll() {
+        if (stripes == null)
+            return;
+        vertexLock.lock();
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    /**
+     * Releases the locks taken by lockAll.
+     */
+    private void unlockAll() {
+        if (stripes == null)
+            return;
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+        vertexLock.unlock();
+    }
+
+    /**
+     * Returns the stripe that guards the edges of the given vertex.
+     *
+     * @param vertex the vertex
+     * @return the stripe index
+     */
+    private static int stripe(Vertex<?> vertex) {
+        return (vertex.getId() >>> STRIPE_SHIFT) & (STRIPE_COUNT - 1);
     }
 
     /**
@@ -58,8 +315,39 @@ public class WeightedGraph<V> {
         validateVertex(source); // Check if the source vertex exists in the graph
         validateVertex(destination); // Check if the destination vertex exists in the graph
 
-        source.getAdjacentVertices().remove(destination); // Remove the adjacent vertex from the source vertex
-        destination.getAdjacentVertices().remove(source); // Remove the adjacent vertex from the destination vertex
+        lockEdge(source, destination);
+        try {
+            source.getAdjacentVertices().remove(destination); // Remove the adjacent vertex from the source vertex
+            destination.getAdjacentVertices().remove(source); // Remove the adjacent vertex from the destination vertex
+            removeNeighbor(source, destination);
+            removeNeighbor(destination, source);
+            changed(source, destination);
+        } finally {
+            unlockEdge(source, destination);
+        }
+    }
+
+    /**
+     * Removes every occurrence of a neighbor from the list of adjacent vertices of a vertex, so that
+     * getNeighbors and BFS agree with the vertex maps that snapshots are built from. The list of a
+     * concurrent graph only grows, so it is replaced by a copy without the neighbor; readers keep the
+     * list they already hold. Called while holding the stripe of the vertex.
+     *
+     * @param vertex   the vertex
+     * @param neighbor the neighbor to remove
+     */
+    private void removeNeighbor(Vertex<V> vertex, Vertex<V> neighbor) {
+        List<Vertex<V>> neighbors = adjacencyList.get(vertex);
+        if (!isConcurrent()) {
+            neighbors.removeIf(adjacent -> adjacent == neighbor);
+            return;
+        }
+        List<Vertex<V>> copy = new AppendOnlyList<>(Math.max(4, neighbors.size()));
+        for (Vertex<V> adjacent : neighbors) {
+            if (adjacent != neighbor)
+                copy.add(adjacent);
+        }
+        adjacencyList.put(vertex, copy);
     }
 
     /**
@@ -77,6 +365,27 @@ public class WeightedGraph<V> {
         return source.getAdjacentVertices().containsKey(destination);
     }
 
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the id of the vertex
+     * @return the vertex
+     */
+    public Vertex<V> getVertex(int id) {
+        if (id < 0 || id >= vertices.size())
+            throw new IllegalArgumentException("Vertex id " + id + " is not in the graph");
+        return vertices.get(id);
+    }
+
+    /**
+     * Returns the number of vertices in the graph.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
     /**
      * Returns a list of adjacent vertices for the given vertex.
      *
@@ -94,27 +403,45 @@ public class WeightedGraph<V> {
      * @param start the start vertex
      */
     public void BFS(Vertex<V> start) {
-        Map<Vertex<V>, Boolean> visited = new HashMap<>(); // Map to track visited vertices
-        for (Vertex<V> vertex : adjacencyList.keySet()) {
-            visited.put(vertex, false); // Initialize all vertices as not visited
+        validateVertex(start); // Check if the start vertex exists in the graph
+        if (isConcurrent()) { // Traverse a pinned snapshot so that concurrent changes are never seen half done
+            CompactGraph<V> snapshot = latestSnapshot(start.getId());
+            for (Vertex<V> vertex : new BreadthFirstSearch<>(snapshot).search(start).getVisitOrder()) {
+                System.out.print(vertex.getData() + " "); // Process the vertex
+            }
+            return;
         }
 
-        Queue<Vertex<V>> queue = new LinkedList<>(); // Queue to perform breadth-first search
-        visited.put(start, true); // Mark the start vertex as visited
-        queue.add(start); // Add the start vertex to the queue
+        GraphEvents.BreadthFirst event = new GraphEvents.BreadthFirst();
+        event.begin();
+        long scanned = 0; // Edges scanned, for the flight recorder
+        BitSet visited = new BitSet(vertices.size()); // Visited vertices by id
+        int[] queue = new int[vertices.size()]; // Queue of vertex ids, each vertex is enqueued at most once
+        int head = 0;
+        int tail = 0;
+        visited.set(start.getId()); // Mark the start vertex as visited
+        queue[tail++] = start.getId(); // Add the start vertex to the queue
 
-        while (!queue.isEmpty()) {
-            Vertex<V> vertex = queue.poll(); // Retrieve and remove the vertex from the queue
+        while (head < tail) {
+            Vertex<V> vertex = vertices.get(queue[head++]); // Retrieve the next vertex from the queue
             System.out.print(vertex.getData() + " "); // Process the vertex
 
             List<Vertex<V>> neighbors = adjacencyList.get(vertex); // Get the list of adjacent vertices
+            scanned += neighbors.size();
             for (Vertex<V> neighbor : neighbors) {
-                if (!visited.get(neighbor)) { // If the neighbor is not visited
-                    visited.put(neighbor, true); // Mark the neighbor as visited
-                    queue.add(neighbor); // Add the neighbor to the queue for further exploration
+                if (!visited.get(neighbor.getId())) { // If the neighbor is not visited
+                    visited.set(neighbor.getId()); // Mark the neighbor as visited
+                    queue[tail++] = neighbor.getId(); // Add the neighbor to the queue for further exploration
                 }
             }
         }
+        if (event.shouldCommit()) {
+            event.sourceId = start.getId();
+            event.mode = "MAP";
+            event.settled = tail;
+            event.edgesScanned = scanned;
+            event.commit();
+        }
     }
 
     /**
@@ -124,34 +451,283 @@ public class WeightedGraph<V> {
      * @return a map of vertices and their distances from the start vertex
      */
     public Map<Vertex<V>, Double> Dijkstra(Vertex<V> start) {
-        Map<Vertex<V>, Double> distances = new HashMap<>(); // Map to store the distances from the start vertex
-        for (Vertex<V> vertex : adjacencyList.keySet()) {
-            distances.put(vertex, Double.POSITIVE_INFINITY); // Initialize all distances to infinity
-        }
-        distances.put(start, 0.0); // Set the distance of the start vertex to 0
-
-        // Priority queue to store vertices based on their distances
-        PriorityQueue<Vertex<V>> priorityQueue = new PriorityQueue<>(Comparator.comparingDouble(distances::get));
-        // Add the start vertex to the priority queue
-        priorityQueue.add(start);
-
-        while (!priorityQueue.isEmpty()) {
-            Vertex<V> vertex = priorityQueue.poll(); // Retrieve and remove the vertex with the minimum distance
-            double distance = distances.get(vertex); // Get the distance of the vertex
-
-            for (Map.Entry<Vertex<V>, Double> entry : vertex.getAdjacentVertices().entrySet()) {
-                Vertex<V> neighbor = entry.getKey(); // Get the adjacent vertex
-                double weight = entry.getValue(); // Get the weight of the edge to the adjacent vertex
-                double newDistance = distance + weight; // Calculate the new distance
-
-                if (newDistance < distances.get(neighbor)) { // If the new distance is shorter than the current distance
-                    priorityQueue.remove(neighbor); // Remove the neighbor from the priority queue
-                    distances.put(neighbor, newDistance); // Update the distance to the neighbor
-                    priorityQueue.add(neighbor); // Add the neighbor back to the priority queue for further evaluation
+        validateVertex(start); // Check if the start vertex exists in the graph
+        if (isConcurrent()) { // Search a pinned snapshot so that concurrent changes are never seen half done
+            SearchResult<V> search = new DijkstraSearch<>(latestSnapshot(start.getId())).search(start);
+            Map<Vertex<V>, Double> result = new HashMap<>(); // Map of vertices and their distances
+            for (int id = 0; id < search.getGraph().vertexCount(); id++) {
+                result.put(search.getGraph().getVertex(id), search.distance(id));
+            }
+            return result;
+        }
+
+        GraphEvents.Dijkstra event = new GraphEvents.Dijkstra();
+        event.begin();
+        int settled = 0; // Vertices settled, for the flight recorder
+        long scanned = 0; // Edges scanned, for the flight recorder
+        long decreases = 0; // Decrease-key operations, for the flight recorder
+        double[] distances = new double[vertices.size()]; // Distances from the start vertex by id
+        Arrays.fill(distances, Double.POSITIVE_INFINITY); // Initialize all distances to infinity
+        distances[start.getId()] = 0.0; // Set the distance of the start vertex to 0
+
+        // Indexed heap keyed by the tentative distances, with O(log n) decrease-key
+        IndexedMinHeap heap = new IndexedMinHeap(vertices.size());
+        heap.insert(start.getId(), 0.0); // Add the start vertex to the heap
+
+        while (!heap.isEmpty()) {
+            int id = heap.poll(); // Retrieve and remove the vertex with the minimum distance
+            double distance = distances[id]; // Get the distance of the vertex
+            settled++;
+
+            for (Map.Entry<Vertex<V>, Double> entry : vertices.get(id).getAdjacentVertices().entrySet()) {
+                int neighbor = entry.getKey().getId(); // Get the id of the adjacent vertex
+                double newDistance = distance + entry.getValue(); // Calculate the new distance
+                scanned++;
+
+                if (newDistance < distances[neighbor]) { // If the new distance is shorter than the current distance
+                    if (distances[neighbor] != Double.POSITIVE_INFINITY)
+                        decreases++;
+                    distances[neighbor] = newDistance; // Update the distance to the neighbor
+                    heap.insertOrDecrease(neighbor, newDistance); // Push the neighbor or move it up in the heap
+                }
+            }
+        }
+
+        if (event.shouldCommit()) {
+            event.sourceId = start.getId();
+            event.settled = settled;
+            event.edgesScanned = scanned;
+            event.decreaseKeys = decreases;
+            event.commit();
+        }
+
+        Map<Vertex<V>, Double> result = new HashMap<>(); // Map of vertices and their distances
+        for (int id = 0; id < vertices.size(); id++) {
+            result.put(vertices.get(id), distances[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Performs Dijkstra's algorithm starting from the given vertex, stopping at the given distance budget.
+     * Only the vertices within the budget are explored, so a small radius costs far less than a full search.
+     *
+     * @param start  the start vertex
+     * @param radius the largest distance to include, inclusive
+     * @return a map of the vertices within the radius and their distances, in increasing order of distance
+     */
+    public Map<Vertex<V>, Double> Dijkstra(Vertex<V> start, double radius) {
+        validateVertex(start); // Check if the start vertex exists in the graph
+        DijkstraSearch<V> engine = acquireSearch();
+        try {
+            SearchResult<V> search = engine.searchWithin(start, radius);
+            Map<Vertex<V>, Double> result = new LinkedHashMap<>(); // Map of vertices and their distances
+            for (int i = 0; i < search.visitCount(); i++) {
+                int id = search.visited(i); // Vertices are settled in increasing order of distance
+                result.put(vertices.get(id), search.distance(id));
+            }
+            return result;
+        } finally {
+            releaseSearch(engine);
+        }
+    }
+
+    /**
+     * Splits the vertices around the start vertex into concentric distance bands with a single bounded
+     * Dijkstra search. Band i holds the vertices whose distance d satisfies limits[i - 1] < d <= limits[i],
+     * where the first band starts at the start vertex itself.
+     *
+     * @param start  the start vertex
+     * @param limits the upper bounds of the bands, non-negative and strictly increasing
+     * @return the vertices of each band, in increasing order of distance
+     */
+    public List<List<Vertex<V>>> isochrones(Vertex<V> start, double... limits) {
+        validateVertex(start); // Check if the start vertex exists in the graph
+        if (limits.length == 0)
+            throw new IllegalArgumentException("At least one band limit is required");
+        for (int i = 0; i < limits.length; i++) {
+            if (!(limits[i] >= 0.0) || (i > 0 && limits[i] <= limits[i - 1]))
+                throw new IllegalArgumentException("Band limits must be non-negative and strictly increasing");
+        }
+        DijkstraSearch<V> engine = acquireSearch();
+        try {
+            SearchResult<V> search = engine.searchWithin(start, limits[limits.length - 1]);
+            List<List<Vertex<V>>> bands = new ArrayList<>(limits.length);
+            for (int i = 0; i < limits.length; i++) {
+                bands.add(new ArrayList<>());
+            }
+            int band = 0;
+            for (int i = 0; i < search.visitCount(); i++) {
+                int id = search.visited(i);
+                while (search.distance(id) > limits[band]) {
+                    band++; // Settled distances only grow, so the bands are filled one after the other
                 }
+                bands.get(band).add(vertices.get(id));
             }
+            return bands;
+        } finally {
+            releaseSearch(engine);
+        }
+    }
+
+    /**
+     * Finds the shortest path between the source and target vertices with Dijkstra's algorithm,
+     * stopping as soon as the target is settled.
+     *
+     * @param source the source vertex
+     * @param target the target vertex
+     * @return the vertices on the path, starting with the source, or an empty list if the target is unreachable
+     */
+    public List<Vertex<V>> shortestPath(Vertex<V> source, Vertex<V> target) {
+        validateVertex(source); // Check if the source vertex exists in the graph
+        validateVertex(target); // Check if the target vertex exists in the graph
+        DijkstraSearch<V> engine = acquireSearch();
+        try {
+            return engine.shortestPath(source, target).getPath(target);
+        } finally {
+            releaseSearch(engine);
+        }
+    }
+
+    /**
+     * Takes the Dijkstra engine kept by the graph, or creates one if another call is using it. The engine
+     * keeps its result arrays and heap between calls and only clears the entries the previous search touched,
+     * so a query that stops early costs time proportional to the vertices it settles, not to the whole graph.
+     * The graph keeps a single engine and no per-thread state, so nothing outlives the graph; a caller that
+     * queries from many threads at once can keep a DijkstraSearch of its own per thread instead.
+     *
+     * @return an engine that only the caller uses until releaseSearch
+     */
+    private DijkstraSearch<V> acquireSearch() {
+        DijkstraSearch<V> search = idleSearch.getAndSet(null);
+        return search != null ? search : new DijkstraSearch<>(this);
+    }
+
+    /**
+     * Gives an engine back to the graph for the next call, unless another engine was given back first.
+     *
+     * @param search the engine taken with acquireSearch
+     */
+    private void releaseSearch(DijkstraSearch<V> search) {
+        idleSearch.compareAndSet(null, search);
+    }
+
+    /**
+     * Estimates the heap held by the graph, broken down by component, and projects the size of the same
+     * graph as a compact snapshot or a mapped graph file.
+     *
+     * @return the memory footprint report
+     */
+    public MemoryFootprint memoryFootprint() {
+        return new MemoryFootprint(adjacencyList, vertices, generation);
+    }
+
+    /**
+     * Returns the number of changes made to the graph. Each snapshot records the version it was built at.
+     *
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Returns a read-only compressed sparse row snapshot of the current version of the graph. The snapshot
+     * is cached and reused until the graph is changed by addVertex, addEdge or removeEdge. A snapshot is
+     * immutable, so a search holding one sees a single consistent version however the graph changes later.
+     * A new snapshot is built from the previous one: the edges of vertices that did not change are copied
+     * as whole blocks, and only the changed vertices are read again.
+     *
+     * @return the compact snapshot of the graph
+     */
+    public CompactGraph<V> freeze() {
+        CompactGraph<V> snapshot = frozen;
+        if (snapshot != null)
+            return snapshot;
+        if (!isConcurrent()) {
+            frozen = generation = snapshot = buildGeneration(); // Rebuild the snapshot from the current edges
+            return snapshot;
+        }
+
+        lockAll(); // Take every lock so that the snapshot sees no change half done
+        try {
+            snapshot = frozen;
+            if (snapshot == null) // Another thread may have rebuilt it while this one waited
+                frozen = generation = snapshot = buildGeneration();
+            return snapshot;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Lets queries on a concurrent graph use a snapshot that misses the calling thread's own recent writes.
+     * By default a thread that changed the graph and then queries it waits for a snapshot that contains its
+     * changes. With stale reads a query only waits for a vertex the snapshot does not know yet, so a thread
+     * that mixes writes and queries never blocks on the rebuild, at the cost of not seeing its own edges.
+     *
+     * @param staleReads true to let queries miss the calling thread's own writes, false to wait for them
+     */
+    public void setStaleReads(boolean staleReads) {
+        this.staleReads = staleReads;
+    }
+
+    /**
+     * Returns the latest published snapshot. The search engines built on a weighted graph use it for every
+     * query. In a concurrent graph it never waits for writers on other threads: the snapshot may miss their
+     * most recent changes, and if it is out of date a rebuild is queued on the common pool, so that the
+     * queries after it see the changes while this one returns at once. Only one rebuild is queued at a time,
+     * which bounds how far behind the snapshot falls to the time of one incremental rebuild. The calling
+     * thread's own changes are always seen: if the published snapshot is older than its last write, the
+     * snapshot is rebuilt at once, unless stale reads were allowed with setStaleReads. A graph used by a
+     * single thread returns the snapshot of its current version, like freeze. Call freeze to wait for every
+     * change made so far.
+     *
+     * @return the latest compact snapshot of the graph
+     */
+    public CompactGraph<V> latestSnapshot() {
+        return latestSnapshot(-1);
+    }
+
+    /**
+     * Returns the latest published snapshot like latestSnapshot, as long as it contains the vertex with the
+     * given id. A query about a vertex added after that snapshot was built waits for a fresh one instead.
+     *
+     * @param id the highest vertex id the caller is about to look up, or -1
+     * @return the latest compact snapshot that contains the vertex
+     */
+    CompactGraph<V> latestSnapshot(int id) {
+        if (!isConcurrent())
+            return freeze();
+        CompactGraph<V> snapshot = generation;
+        if (snapshot == null || id >= snapshot.vertexCount())
+            return freeze();
+        if (!staleReads && written.get()[0] > snapshot.getVersion())
+            return freeze(); // The snapshot misses a change this thread made
+        if (frozen == null && refreshing.compareAndSet(false, true))
+            ForkJoinPool.commonPool().execute(this::refresh); // Rebuild off the query path
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the snapshot in the background for latestSnapshot.
+     */
+    private void refresh() {
+        try {
+            freeze();
+        } finally {
+            refreshing.set(false);
         }
-        return distances;
+    }
+
+    /**
+     * Builds the snapshot of the current version from the previous one. The caller must keep the graph
+     * from changing while it runs.
+     *
+     * @return the new snapshot
+     */
+    private CompactGraph<V> buildGeneration() {
+        return CompactGraph.build(vertices, generation, version.get());
     }
 
     /**
@@ -168,4 +744,52 @@ public class WeightedGraph<V> {
             System.out.println();
         }
     }
+
+    /**
+     * A list that only grows, written by one thread at a time and read by any number of threads without
+     * locks: the size is published after the new slot is written, so a reader that sees the size also sees
+     * every element below it. A concurrent graph uses it for the table of vertices by id, written under the
+     * vertex lock, and for the neighbor lists, each written under the stripe of its vertex, so that appending
+     * an edge costs amortized constant time.
+     */
+    private static class AppendOnlyList<E> extends AbstractList<E> implements RandomAccess {
+        private volatile AtomicReferenceArray<E> table; // Elements by index
+        private volatile int size; // Number of published elements
+
+        /**
+         * Constructs a new empty list.
+         *
+         * @param capacity the initial capacity
+         */
+        AppendOnlyList(int capacity) {
+            table = new AtomicReferenceArray<>(capacity);
+        }
+
+        @Override
+        public E get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException("Index " + index + " out of " + size + " elements");
+            return table.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(E element) {
+            AtomicReferenceArray<E> current = table;
+            if (size == current.length()) { // Grow by copying into a table twice as large
+                AtomicReferenceArray<E> grown = new AtomicReferenceArray<>(current.length() * 2);
+                for (int i = 0; i < size; i++) {
+                    grown.set(i, current.get(i));
+                }
+                table = current = grown;
+            }
+            current.set(size, element);
+            size++; // Publish the element
+            return true;
+        }
+    }
 }
\ No newline at end of file